@@ -0,0 +1,113 @@
+package menu.benchmarks;
+
+import com.jme3.app.LegacyApplication;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.input.InputManager;
+import com.jme3.input.dummy.DummyKeyInput;
+import com.jme3.input.dummy.DummyMouseInput;
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.scene.Node;
+import java.util.concurrent.TimeUnit;
+import menu.elements.NSlider;
+import menu.elements.Panel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Drags a slider back and forth, through the panel input path: the cursor is
+ * projected on the slider, which moves its value and fires a value change.
+ * The frame never ends, so the event keeps waiting to be dispatched, as it
+ * does between the mouse events of a frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DragBenchmark
+{
+    private Camera camera;
+    private Panel panel;
+    private Vector2f cursor;
+    private Vector2f left;
+    private Vector2f right;
+    private boolean toLeft;
+
+    @Setup
+    public void setUp()
+    {
+        camera = new Camera(1280, 720);
+        camera.setFrustumPerspective(45, 1280f / 720, 1, 1000);
+        camera.setLocation(new Vector3f(0, 0, 10));
+        camera.lookAt(Vector3f.ZERO, Vector3f.UNIT_Y);
+
+        Node root = new Node();
+        panel = new Panel(camera, root, 5);
+        root.attachChild(panel);
+        BenchmarkApplication application = new BenchmarkApplication(camera);
+        panel.register(application);
+        panel.setMenuFont(Fonts.create());
+
+        NSlider slider = new NSlider(2);
+        panel.add(slider);
+        slider.setSize(0.5f, 0.1f);
+        slider.setPosition(new Vector2f(0.25f, 0.45f));
+        panel.update(0);
+        root.updateGeometricState();
+
+        left = toScreen(slider, 0.3f);
+        right = toScreen(slider, 0.4f);
+
+        // Grab the first value of the slider.
+        cursor = application.getInputManager().getCursorPosition();
+        cursor.set(left);
+        panel.processClick(true);
+    }
+
+    /**
+     * Returns the screen position of the given point along the slider (as a
+     * fraction of its length).
+     */
+    private Vector2f toScreen(NSlider slider, float x)
+    {
+        Vector3f local = new Vector3f(x * slider.getLocalWidth(), slider.getLocalHeight() / 2, 0);
+        Vector3f screen = camera.getScreenCoordinates(slider.localToWorld(local, null));
+        return new Vector2f(screen.x, screen.y);
+    }
+
+    @Benchmark
+    public void drag()
+    {
+        toLeft = !toLeft;
+        cursor.set(toLeft ? left : right);
+        panel.processDrag();
+    }
+
+    /**
+     * An application that is never started: it only hands its camera and
+     * its input manager to the panel. The cursor of the input manager is
+     * moved in place.
+     */
+    private static class BenchmarkApplication extends LegacyApplication
+    {
+        BenchmarkApplication(Camera camera)
+        {
+            cam = camera;
+            assetManager = new DesktopAssetManager(true);
+            mouseInput = new DummyMouseInput();
+            keyInput = new DummyKeyInput();
+            inputManager = new InputManager(mouseInput, keyInput, null, null);
+        }
+    }
+}
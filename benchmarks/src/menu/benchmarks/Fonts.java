@@ -0,0 +1,33 @@
+package menu.benchmarks;
+
+import menu.utils.Jme3DFont;
+
+/**
+ * The fonts and texts the benchmarks use.
+ */
+class Fonts
+{
+    private static final String sample = "Options Video Audio Controls 0123456789 ";
+
+    /**
+     * Returns a new extruded font. The logical Serif font is used, as it
+     * exists on any system, with or without a display.
+     */
+    static Jme3DFont create()
+    {
+        return new Jme3DFont("Serif", true);
+    }
+
+    /**
+     * Returns a text of the given length, made of usual menu words.
+     */
+    static String text(int length)
+    {
+        StringBuilder result = new StringBuilder(length);
+        while (result.length() < length)
+        {
+            result.append(sample.charAt(result.length() % sample.length()));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package menu.benchmarks;
+
+import com.jme3.scene.Mesh;
+import java.util.concurrent.TimeUnit;
+import menu.utils.Jme3DFont;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds glyph meshes, with a font that has none yet (cold) or that already
+ * built them (warm).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GlyphBenchmark
+{
+    // A simple glyph, a curved one, and a complex one.
+    @Param(
+    {
+        "I", "g", "@"
+    })
+    public String glyph;
+    private Jme3DFont warmFont;
+
+    /**
+     * A new font for each call: nothing is cached.
+     */
+    @State(Scope.Thread)
+    public static class ColdFont
+    {
+        Jme3DFont font;
+
+        @Setup(Level.Invocation)
+        public void setUp()
+        {
+            font = Fonts.create();
+        }
+    }
+
+    @Setup
+    public void setUp()
+    {
+        warmFont = Fonts.create();
+        warmFont.prepare(glyph);
+    }
+
+    @Benchmark
+    public Mesh coldGlyphMesh(ColdFont cold)
+    {
+        return cold.font.getGlyphMesh(glyph.charAt(0));
+    }
+
+    @Benchmark
+    public Mesh warmGlyphMesh()
+    {
+        return warmFont.getGlyphMesh(glyph.charAt(0));
+    }
+}
@@ -0,0 +1,85 @@
+package menu.benchmarks;
+
+import com.jme3.math.Vector3f;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import menu.utils.MeshUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Turns triangle lists into indexed triangles, as done for each glyph, for
+ * several vertex counts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MeshBenchmark
+{
+    // The number of vertices in the triangle list (3 per triangle).
+    @Param(
+    {
+        "96", "960", "9600"
+    })
+    public int vertexCount;
+    private ArrayList<Vector3f> vertices = new ArrayList<>();
+    private ArrayList<Vector3f> normals = new ArrayList<>();
+    // The lists given to each call, as they are modified.
+    private ArrayList<Vector3f> callVertices;
+    private ArrayList<Vector3f> callNormals;
+
+    /**
+     * Builds a strip of quads, two triangles each: most vertices are shared
+     * by several triangles, as in a glyph.
+     */
+    @Setup
+    public void setUp()
+    {
+        for (int quad = 0; vertices.size() < vertexCount; quad++)
+        {
+            Vector3f a = new Vector3f(quad, 0, 0);
+            Vector3f b = new Vector3f(quad + 1, 0, 0);
+            Vector3f c = new Vector3f(quad + 1, 1, 0);
+            Vector3f d = new Vector3f(quad, 1, 0);
+            addTriangle(a, b, c);
+            addTriangle(a, c, d);
+        }
+    }
+
+    private void addTriangle(Vector3f a, Vector3f b, Vector3f c)
+    {
+        vertices.add(a);
+        vertices.add(b);
+        vertices.add(c);
+        for (int i = 0; i < 3; i++)
+        {
+            normals.add(Vector3f.UNIT_Z);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void copyLists()
+    {
+        callVertices = new ArrayList<>(vertices);
+        callNormals = new ArrayList<>(normals);
+    }
+
+    @Benchmark
+    public ArrayList<Integer> trianglesFromVerticesList()
+    {
+        return MeshUtils.trianglesFromVerticesList(callVertices, callNormals);
+    }
+}
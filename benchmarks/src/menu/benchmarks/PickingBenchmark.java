@@ -0,0 +1,114 @@
+package menu.benchmarks;
+
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.scene.Node;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import menu.elements.Button;
+import menu.elements.MenuElement;
+import menu.elements.Panel;
+import menu.utils.Materials;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Picks the button under the cursor, among a grid of buttons filling a
+ * panel, with the cursor on a button, between buttons or in empty space.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PickingBenchmark
+{
+    @Param(
+    {
+        "10", "100", "1000", "10000"
+    })
+    public int elementCount;
+    private Camera camera;
+    private ArrayList<MenuElement> candidates = new ArrayList<>();
+    private Vector2f onButton;
+    private Vector2f betweenButtons;
+    private Vector2f inEmptySpace;
+    private Panel panel;
+    private final Vector3f contactPoint = new Vector3f();
+    private final Vector3f contactNormal = new Vector3f();
+
+    @Setup
+    public void setUp()
+    {
+        Materials.initMaterials(new DesktopAssetManager(true));
+        camera = new Camera(1280, 720);
+        camera.setFrustumPerspective(45, 1280f / 720, 1, 1000);
+        camera.setLocation(new Vector3f(0, 0, 10));
+        camera.lookAt(Vector3f.ZERO, Vector3f.UNIT_Y);
+
+        Node root = new Node();
+        panel = new Panel(camera, root, 5);
+        root.attachChild(panel);
+        panel.setMenuFont(Fonts.create());
+
+        // Each button takes half of its cell, so that there is room around.
+        int side = (int) Math.ceil(Math.sqrt(elementCount));
+        for (int i = 0; i < elementCount; i++)
+        {
+            Button button = new Button("Option " + i);
+            panel.add(button);
+            button.setSize(0.5f / side, 0.5f / side);
+            button.setPosition(new Vector2f((i % side) / (float) side, (i / side) / (float) side));
+            candidates.add(button);
+        }
+        panel.update(0);
+        root.updateGeometricState();
+
+        onButton = toScreen(0.25f / side, 0.25f / side);
+        betweenButtons = toScreen(0.75f / side, 0.75f / side);
+        // The far corner of the panel: the last button only takes the lower
+        // left part of its cell.
+        inEmptySpace = toScreen(0.999f, 0.999f);
+    }
+
+    /**
+     * Returns the screen position of the given point of the panel (as
+     * fractions of its size).
+     */
+    private Vector2f toScreen(float x, float y)
+    {
+        Vector3f world = panel.localToWorld(new Vector3f(x * panel.getLocalWidth(), y * panel.getLocalHeight(), 0), null);
+        Vector3f screen = camera.getScreenCoordinates(world);
+        return new Vector2f(screen.x, screen.y);
+    }
+
+    @Benchmark
+    public MenuElement pickOnButton()
+    {
+        return panel.getNodeClicked(camera, onButton, contactPoint, contactNormal, candidates);
+    }
+
+    @Benchmark
+    public MenuElement pickBetweenButtons()
+    {
+        return panel.getNodeClicked(camera, betweenButtons, contactPoint, contactNormal, candidates);
+    }
+
+    @Benchmark
+    public MenuElement pickEmptySpace()
+    {
+        return panel.getNodeClicked(camera, inEmptySpace, contactPoint, contactNormal, candidates);
+    }
+}
@@ -0,0 +1,655 @@
+package menu.benchmarks;
+
+import com.jme3.app.SimpleApplication;
+import com.jme3.input.MouseInput;
+import com.jme3.input.RawInputListener;
+import com.jme3.input.controls.ActionListener;
+import com.jme3.input.dummy.DummyMouseInput;
+import com.jme3.input.event.InputEvent;
+import com.jme3.input.event.MouseButtonEvent;
+import com.jme3.input.event.MouseMotionEvent;
+import com.jme3.material.Material;
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.system.AppSettings;
+import com.jme3.system.JmeContext;
+import com.jme3.system.NullContext;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import menu.elements.Button;
+import menu.elements.Carousel;
+import menu.elements.Label;
+import menu.elements.MenuElement;
+import menu.elements.MenuEvent;
+import menu.elements.MenuListener;
+import menu.elements.NSlider;
+import menu.elements.Panel;
+import menu.transitions.SlideTransition;
+import menu.utils.Jme3DFont;
+import menu.utils.MenuStatistics;
+
+/**
+ * Runs synthetic menus of growing sizes in a headless jME application, and
+ * reports how the time spent updating, refreshing and picking grows with the
+ * number of elements.
+ *
+ * Each menu is a grid of panels, holding labels, buttons, sliders and
+ * carousels. A scripted mouse then clicks the buttons, drags the sliders,
+ * turns the carousels with the wheel and slides the first panel back and
+ * forth, through the input manager, as a user would. The frames are run at a
+ * fixed time step, so that every menu size goes through the same script.
+ *
+ * Usage: ScalabilityHarness [name=value]... with, for the smallest menu:
+ * <ul>
+ * <li>panels=4, labels=8, buttons=8, sliders=4, carousels=2: the counts of
+ * each kind of element, spread over the panels;</li>
+ * <li>scales=1,2,4,8,16: the menu sizes run, as multiples of these counts;</li>
+ * <li>frames=600: the frames run for each size;</li>
+ * <li>csv=file: also writes the time of each frame to that file.</li>
+ * </ul>
+ */
+public class ScalabilityHarness extends SimpleApplication
+{
+    // The script repeats every cycle of frames; see scriptFrame().
+    private static final int cycle = 60;
+    private static final float timeStep = 1 / 60f;
+    private static final ScriptedMouse mouse = new ScriptedMouse();
+    private final HashMap<String, String> options = new HashMap<>();
+    private int scales[];
+    private int frames;
+    // The size being run, -1 for the warm-up run (not reported).
+    private int scaleIndex = -1;
+    private int frame;
+    private Material material;
+    private Jme3DFont font;
+    // The menu being run.
+    private Panel menu;
+    private Panel firstPanel;
+    private Panel firstPanelTwin;
+    private int elementCount;
+    private ArrayList<Button> buttons = new ArrayList<>();
+    private ArrayList<NSlider> sliders = new ArrayList<>();
+    private ArrayList<Carousel<Node>> carousels = new ArrayList<>();
+    private ArrayList<Label> labels = new ArrayList<>();
+    private int handledEvents;
+    // The times of each frame of the menu being run, in nanoseconds.
+    private long updateTimes[];
+    private long refreshTimes[];
+    private long pickTimes[];
+    private long picks;
+    private long pickCacheHits;
+    private ArrayList<Result> results = new ArrayList<>();
+    private PrintWriter csv;
+
+    public static void main(String[] args) throws IOException
+    {
+        Logger.getLogger("").setLevel(Level.WARNING);
+        ScalabilityHarness app = new ScalabilityHarness();
+        for (String arg : args)
+        {
+            String option[] = arg.split("=", 2);
+            if (option.length != 2)
+            {
+                System.err.println("Usage: ScalabilityHarness [panels|labels|buttons|sliders|carousels|scales|frames|csv=value]...");
+                System.exit(1);
+            }
+            app.options.put(option[0], option[1]);
+        }
+
+        String scaleList[] = app.option("scales", "1,2,4,8,16").split(",");
+        app.scales = new int[scaleList.length];
+        for (int i = 0; i < scaleList.length; i++)
+        {
+            app.scales[i] = Integer.parseInt(scaleList[i].trim());
+        }
+        app.frames = Integer.parseInt(app.option("frames", "600"));
+        if (app.options.containsKey("csv"))
+        {
+            app.csv = new PrintWriter(new FileWriter(app.options.get("csv")));
+            app.csv.println("elements,frame,update_us,refresh_us,pick_us");
+        }
+
+        // A headless context, whose mouse is played by the script. The frames
+        // are run as fast as possible.
+        AppSettings settings = new AppSettings(true);
+        settings.setResolution(1280, 720);
+        settings.setFrameRate(-1);
+        settings.setAudioRenderer(null);
+        settings.setCustomRenderer(ScriptedContext.class);
+        app.setSettings(settings);
+        app.setShowSettings(false);
+        app.setPauseOnLostFocus(false);
+        app.start();
+    }
+
+    private String option(String name, String defaultValue)
+    {
+        return options.containsKey(name) ? options.get(name) : defaultValue;
+    }
+
+    private int count(String name, int defaultValue, int scale)
+    {
+        return Integer.parseInt(option(name, Integer.toString(defaultValue))) * scale;
+    }
+
+    @Override
+    public void simpleInitApp()
+    {
+        // The camera stays put, whatever the mouse does.
+        flyCam.setEnabled(false);
+        setDisplayFps(false);
+        setDisplayStatView(false);
+
+        material = new Material(assetManager, "Common/MatDefs/Light/Lighting.j3md");
+        font = Fonts.create();
+        createMenu(scales[0]);
+    }
+
+    /**
+     * Builds the menu for the given scale: a grid of panels, each holding its
+     * share of the elements in a grid of cells.
+     */
+    private void createMenu(int scale)
+    {
+        menu = new Panel(cam, rootNode, 5);
+        menu.register(this);
+        rootNode.attachChild(menu);
+        menu.setMenuMaterial(material);
+        menu.setMenuFont(font);
+
+        int panelCount = Math.max(1, count("panels", 4, scale));
+        int columns = (int) Math.ceil(Math.sqrt(panelCount));
+        int rows = (panelCount + columns - 1) / columns;
+        int counts[] =
+        {
+            count("labels", 8, scale), count("buttons", 8, scale), count("sliders", 4, scale), count("carousels", 2, scale)
+        };
+        elementCount = panelCount;
+        for (int c : counts)
+        {
+            elementCount += c;
+        }
+
+        buttons.clear();
+        sliders.clear();
+        carousels.clear();
+        labels.clear();
+        for (int i = 0; i < panelCount; i++)
+        {
+            Vector2f position = new Vector2f((i % columns) / (float) columns, (i / columns) / (float) rows);
+            Vector2f size = new Vector2f(1f / columns, 1f / rows);
+            Panel panel = menu.createSubPanel(position, size);
+            menu.add(panel);
+            fillPanel(panel, i, panelCount, counts, true);
+
+            // The first panel slides back and forth with a twin of it.
+            if (i == 0)
+            {
+                firstPanel = panel;
+                firstPanelTwin = menu.createSubPanel(position, size);
+                firstPanelTwin.setMenuFont(font);
+                firstPanelTwin.setMenuMaterial(material);
+                fillPanel(firstPanelTwin, i, panelCount, counts, false);
+            }
+        }
+    }
+
+    /**
+     * Adds to the panel its share of each kind of element.
+     *
+     * @param targets If true, the script aims at the elements added.
+     */
+    private void fillPanel(Panel panel, int index, int panelCount, int counts[], boolean targets)
+    {
+        // Share the elements as evenly as possible among the panels.
+        int shares[] = new int[counts.length];
+        int total = 0;
+        for (int i = 0; i < counts.length; i++)
+        {
+            shares[i] = counts[i] / panelCount + (index < counts[i] % panelCount ? 1 : 0);
+            total += shares[i];
+        }
+        int side = Math.max(1, (int) Math.ceil(Math.sqrt(total)));
+
+        int cell = 0;
+        for (int kind = 0; kind < shares.length; kind++)
+        {
+            for (int i = 0; i < shares[kind]; i++, cell++)
+            {
+                MenuElement element = createElement(kind, index + "." + cell, targets);
+                panel.add(element);
+                // Each element takes most of its cell; carousels turn around
+                // their center.
+                element.setSize(0.8f / side, 0.6f / side);
+                float offset = kind == 3 ? 0.5f : 0.1f;
+                element.setPosition(new Vector2f(((cell % side) + offset) / side, ((cell / side) + offset) / side));
+            }
+        }
+    }
+
+    private MenuElement createElement(int kind, String name, boolean targets)
+    {
+        switch (kind)
+        {
+        case 0:
+            Label label = new Label("Label " + name);
+            if (targets)
+            {
+                labels.add(label);
+            }
+            return label;
+        case 1:
+            Button button = new Button("Button " + name);
+            // A click writes on a label, to be refreshed.
+            button.addActionListener(new ActionListener()
+            {
+                @Override
+                public void onAction(String action, boolean isPressed, float tpf)
+                {
+                    handledEvents++;
+                    if (!labels.isEmpty())
+                    {
+                        labels.get(handledEvents % labels.size()).setText("Clicked " + action);
+                    }
+                }
+            });
+            if (targets)
+            {
+                buttons.add(button);
+            }
+            return button;
+        case 2:
+            NSlider slider = new NSlider(2);
+            slider.addMenuListener(new MenuListener()
+            {
+                @Override
+                public void onMenuEvent(MenuEvent event)
+                {
+                    handledEvents++;
+                }
+            });
+            if (targets)
+            {
+                sliders.add(slider);
+            }
+            return slider;
+        default:
+            Carousel<Node> carousel = new Carousel<>(true, 0.5f);
+            for (char c : "Item".toCharArray())
+            {
+                Geometry geometry = new Geometry(Character.toString(c), font.getGlyphMesh(c));
+                geometry.setMaterial(material);
+                geometry.setLocalTranslation(font.getGlyphSize(c).mult(-0.5f));
+                Node item = new Node(Character.toString(c));
+                item.attachChild(geometry);
+                carousel.addElements(item);
+            }
+            if (targets)
+            {
+                carousels.add(carousel);
+            }
+            return carousel;
+        }
+    }
+
+    @Override
+    public void simpleUpdate(float tpf)
+    {
+        // The first frame refreshes the whole menu: it is reported apart.
+        if (frame == 0)
+        {
+            updateTimes = new long[frames];
+            refreshTimes = new long[frames];
+            pickTimes = new long[frames];
+            picks = 0;
+            pickCacheHits = 0;
+            handledEvents = 0;
+        }
+
+        // The input of this frame was processed (and picked) before this.
+        menu.update(timeStep);
+        MenuStatistics statistics = menu.getStatistics();
+        updateTimes[frame] = statistics.getUpdateTime();
+        refreshTimes[frame] = statistics.getRefreshTime();
+        pickTimes[frame] = statistics.getPickTime();
+        picks += statistics.getPicks();
+        pickCacheHits += statistics.getPickCacheHits();
+        statistics.reset();
+        if (csv != null && scaleIndex >= 0)
+        {
+            csv.printf("%d,%d,%.3f,%.3f,%.3f%n", elementCount, frame, updateTimes[frame] / 1e3, refreshTimes[frame] / 1e3, pickTimes[frame] / 1e3);
+        }
+
+        frame++;
+        if (frame < frames)
+        {
+            scriptFrame(frame);
+            return;
+        }
+
+        // This size is over: report it, and go on with the next.
+        if (scaleIndex >= 0)
+        {
+            results.add(new Result(elementCount, updateTimes, refreshTimes, pickTimes, picks, pickCacheHits, handledEvents));
+            System.out.println(results.get(results.size() - 1));
+        }
+        menu.unRegister(inputManager);
+        // The next menu registers its mappings again.
+        inputManager.clearMappings();
+        rootNode.detachAllChildren();
+        scaleIndex++;
+        frame = 0;
+        if (scaleIndex < scales.length)
+        {
+            createMenu(scales[scaleIndex]);
+        }
+        else
+        {
+            report();
+            stop();
+        }
+    }
+
+    /**
+     * A failure makes the whole run fail, rather than report partial results.
+     */
+    @Override
+    public void handleError(String errorMessage, Throwable t)
+    {
+        super.handleError(errorMessage, t);
+        System.exit(1);
+    }
+
+    /**
+     * Queues the input of the given frame. Within each cycle, the mouse:
+     * clicks a button, drags a slider, turns a carousel with the wheel, turns
+     * the wheel over empty space and clicks a label. Every other cycle, the
+     * first panel also slides to its twin, or back.
+     */
+    private void scriptFrame(int frame)
+    {
+        int step = frame % cycle;
+        int round = frame / cycle;
+        MenuElement button = shown(buttons, round);
+        MenuElement slider = shown(sliders, round);
+        MenuElement carousel = shown(carousels, round);
+        MenuElement label = shown(labels, round);
+        if (step == 0 && button != null)
+        {
+            mouse.move(aim(button));
+        }
+        else if ((step == 1 || step == 2) && button != null)
+        {
+            mouse.press(step == 1);
+        }
+        else if (step == 5 && slider != null)
+        {
+            mouse.move(aim(slider));
+        }
+        else if (step == 6 && slider != null)
+        {
+            mouse.press(true);
+        }
+        else if (step > 6 && step < 17 && slider != null)
+        {
+            mouse.moveBy(step % 2 == 0 ? 6 : -4, 0);
+        }
+        else if (step == 17 && slider != null)
+        {
+            mouse.press(false);
+        }
+        else if (step == 20 && carousel != null)
+        {
+            mouse.move(aim(carousel));
+        }
+        else if (step > 20 && step < 24 && carousel != null)
+        {
+            mouse.wheel(step == 22 ? -1 : 1);
+        }
+        else if (step == 25)
+        {
+            // In a corner of the screen, where there is nothing to pick.
+            mouse.move(new Vector2f(1, 1));
+            mouse.wheel(1);
+        }
+        else if (step == 28 && label != null)
+        {
+            mouse.move(aim(label));
+            mouse.press(true);
+        }
+        else if (step == 29 && label != null)
+        {
+            mouse.press(false);
+        }
+        else if (step == 30 && round % 2 == 0)
+        {
+            boolean back = firstPanel.getParent() == null;
+            Panel source = back ? firstPanelTwin : firstPanel;
+            Panel destination = back ? firstPanel : firstPanelTwin;
+            menu.addTransition(new SlideTransition(source, destination, back ? SlideTransition.Direction.RIGHT : SlideTransition.Direction.LEFT));
+        }
+    }
+
+    /**
+     * Returns the element the script aims at in this round, or the next one
+     * that is shown: the first panel is away every other round.
+     */
+    private static <T extends MenuElement> T shown(ArrayList<T> elements, int round)
+    {
+        for (int i = 0; i < elements.size(); i++)
+        {
+            T element = elements.get((round + i) % elements.size());
+            if (element.getParent().getParent() != null)
+            {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the screen position of the center of the element. Carousels
+     * turn around their origin.
+     */
+    private Vector2f aim(MenuElement element)
+    {
+        Vector3f center = element instanceof Carousel ? new Vector3f()
+                : new Vector3f(element.getLocalWidth() / 2, element.getLocalHeight() / 2, 0);
+        Vector3f screen = cam.getScreenCoordinates(element.localToWorld(center, null));
+        return new Vector2f(screen.x, screen.y);
+    }
+
+    /**
+     * Prints, for each size, the costs per frame, and how they grew from the
+     * previous size: cost ~ elements^k.
+     */
+    private void report()
+    {
+        if (csv != null)
+        {
+            csv.close();
+        }
+
+        System.out.println();
+        System.out.println("Times in ms: mean / 95th percentile / max per frame (picking: per frame that picked).");
+        System.out.println("k: the cost grew as elements^k from the previous size.");
+        System.out.printf("%9s %10s | %-23s | %-23s | %-23s | %7s | %6s %6s %6s%n",
+                "elements", "1st frame", "update", "refresh", "picking", "cached", "k upd", "k ref", "k pick");
+        for (int i = 0; i < results.size(); i++)
+        {
+            Result result = results.get(i);
+            Result previous = i > 0 ? results.get(i - 1) : null;
+            System.out.printf("%9d %10.2f | %-23s | %-23s | %-23s | %6.1f%% | %6s %6s %6s%n",
+                    result.elementCount, result.firstFrame / 1e6, result.update, result.refresh, result.pick,
+                    100f * result.pickCacheHits / Math.max(1, result.picks),
+                    growth(previous, result, previous == null ? 0 : previous.update.mean, result.update.mean),
+                    growth(previous, result, previous == null ? 0 : previous.refresh.mean, result.refresh.mean),
+                    growth(previous, result, previous == null ? 0 : previous.pick.mean, result.pick.mean));
+        }
+    }
+
+    /**
+     * Returns the exponent k such that the cost grew as elements^k, from the
+     * previous size to this one.
+     */
+    private static String growth(Result previous, Result result, double previousCost, double cost)
+    {
+        if (previous == null || previousCost <= 0 || cost <= 0 || previous.elementCount == result.elementCount)
+        {
+            return "-";
+        }
+        double k = Math.log(cost / previousCost) / Math.log(result.elementCount / (double) previous.elementCount);
+        return String.format("%.2f", k);
+    }
+
+    /**
+     * The costs measured for one menu size.
+     */
+    private static class Result
+    {
+        final int elementCount;
+        // The update of the first frame, which refreshes the whole menu.
+        final long firstFrame;
+        final Times update;
+        final Times refresh;
+        final Times pick;
+        final long picks;
+        final long pickCacheHits;
+        final int handledEvents;
+
+        Result(int elementCount, long updateTimes[], long refreshTimes[], long pickTimes[], long picks, long pickCacheHits, int handledEvents)
+        {
+            this.elementCount = elementCount;
+            this.firstFrame = updateTimes[0];
+            this.update = new Times(Arrays.copyOfRange(updateTimes, 1, updateTimes.length));
+            this.refresh = new Times(Arrays.copyOfRange(refreshTimes, 1, refreshTimes.length));
+            // Only the frames that picked count for picking.
+            long picking[] = new long[pickTimes.length];
+            int n = 0;
+            for (long time : pickTimes)
+            {
+                if (time > 0)
+                {
+                    picking[n++] = time;
+                }
+            }
+            this.pick = new Times(Arrays.copyOf(picking, n));
+            this.picks = picks;
+            this.pickCacheHits = pickCacheHits;
+            this.handledEvents = handledEvents;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%d elements: first frame %.2f ms, update %s ms, refresh %s ms, picking %s ms, %d picks, %d events handled",
+                    elementCount, firstFrame / 1e6, update, refresh, pick, picks, handledEvents);
+        }
+    }
+
+    /**
+     * The distribution of the times of a series of frames.
+     */
+    private static class Times
+    {
+        final double mean;
+        final double p95;
+        final double max;
+
+        Times(long times[])
+        {
+            Arrays.sort(times);
+            long sum = 0;
+            for (long time : times)
+            {
+                sum += time;
+            }
+            mean = times.length == 0 ? 0 : sum / 1e6 / times.length;
+            p95 = times.length == 0 ? 0 : times[(int) Math.min(times.length - 1, Math.ceil(0.95 * times.length) - 1)] / 1e6;
+            max = times.length == 0 ? 0 : times[times.length - 1] / 1e6;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%.3f / %.3f / %.3f", mean, p95, max);
+        }
+    }
+
+    /**
+     * A headless context, whose mouse is the scripted one.
+     */
+    public static class ScriptedContext extends NullContext
+    {
+        @Override
+        public MouseInput getMouseInput()
+        {
+            return mouse;
+        }
+    }
+
+    /**
+     * A mouse moved by the script: the events queued during a frame are sent
+     * to the input manager on the next one, as a real mouse would.
+     */
+    private static class ScriptedMouse extends DummyMouseInput
+    {
+        private RawInputListener listener;
+        private ArrayList<InputEvent> events = new ArrayList<>();
+        private int x;
+        private int y;
+
+        @Override
+        public void setInputListener(RawInputListener listener)
+        {
+            this.listener = listener;
+        }
+
+        void move(Vector2f position)
+        {
+            moveBy(Math.round(position.x) - x, Math.round(position.y) - y);
+        }
+
+        void moveBy(int dx, int dy)
+        {
+            x += dx;
+            y += dy;
+            events.add(new MouseMotionEvent(x, y, dx, dy, 0, 0));
+        }
+
+        void wheel(int step)
+        {
+            events.add(new MouseMotionEvent(x, y, 0, 0, step, step));
+        }
+
+        void press(boolean pressed)
+        {
+            events.add(new MouseButtonEvent(MouseInput.BUTTON_LEFT, pressed, x, y));
+        }
+
+        @Override
+        public void update()
+        {
+            for (InputEvent event : events)
+            {
+                if (event instanceof MouseMotionEvent)
+                {
+                    listener.onMouseMotionEvent((MouseMotionEvent) event);
+                }
+                else
+                {
+                    listener.onMouseButtonEvent((MouseButtonEvent) event);
+                }
+            }
+            events.clear();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package menu.benchmarks;
+
+import com.jme3.scene.Node;
+import java.util.concurrent.TimeUnit;
+import menu.elements.Label;
+import menu.utils.Jme3DFont;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds text nodes and measures labels, for texts of several lengths. The
+ * glyphs are built beforehand: only the per-text work is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextBenchmark
+{
+    @Param(
+    {
+        "1", "10", "100", "1000"
+    })
+    public int length;
+    private Jme3DFont font;
+    private String text;
+    private Label label;
+
+    @Setup
+    public void setUp()
+    {
+        font = Fonts.create();
+        text = Fonts.text(length);
+        font.prepare(text);
+        label = new Label(text);
+        label.setMenuFont(font);
+    }
+
+    @Benchmark
+    public Node stringNode()
+    {
+        return font.getStringNode(text);
+    }
+
+    @Benchmark
+    public float labelMeasurement()
+    {
+        return label.getLocalWidth() + label.getLocalHeight() + label.getLocalDepth();
+    }
+}
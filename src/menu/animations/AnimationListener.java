@@ -0,0 +1,13 @@
+package menu.animations;
+
+/**
+ * Notified when an animation ends.
+ */
+public interface AnimationListener
+{
+    /**
+     * @param animation The animation identifier, as returned by the animator.
+     * @param completed False if the animation has been cancelled.
+     */
+    public void animationFinished(int animation, boolean completed);
+}
@@ -0,0 +1,265 @@
+package menu.animations;
+
+import com.jme3.material.MatParam;
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
+import java.util.Arrays;
+
+/**
+ * Runs fixed-duration animations (tweens) of translations, scales, material
+ * alphas and arbitrary values. The state of all the animations is kept in
+ * parallel arrays, and updating them all is a single loop: thousands of
+ * animations cost little more than one.
+ *
+ * The root panel owns one, updated with the menu (see MenuElement.getAnimator).
+ */
+public class Animator
+{
+    /**
+     * Receives the values of a value animation.
+     */
+    public interface Target
+    {
+        public void setAnimatedValue(float value);
+    }
+    // What the animations change.
+    private static final int TRANSLATION = 0;
+    private static final int SCALE = 1;
+    private static final int ALPHA = 2;
+    private static final int VALUE = 3;
+    private static final Easing easings[] = Easing.values();
+    private int count = 0;
+    private int nextId = 0;
+    private int ids[] = new int[0];
+    private int channels[] = new int[0];
+    private int curves[] = new int[0];
+    private float elapsed[] = new float[0];
+    private float durations[] = new float[0];
+    // Start and end values, 3 per animation (x, y, z; only x for scalars).
+    private float from[] = new float[0];
+    private float to[] = new float[0];
+    // The animated objects: spatials, materials or targets.
+    private Object targets[] = new Object[0];
+    private AnimationListener listeners[] = new AnimationListener[0];
+    // The color each alpha animation writes, copied from its material: the
+    // material's own color may be shared (e.g. ColorRGBA.White).
+    private ColorRGBA colors[] = new ColorRGBA[0];
+    // The animations finished during the last update, to notify afterwards.
+    private int finishedIds[] = new int[0];
+    private AnimationListener finishedListeners[] = new AnimationListener[0];
+
+    /**
+     * Moves the spatial to the given (local) translation.
+     *
+     * @param listener Notified at the end, may be null.
+     * @return the animation identifier.
+     */
+    public int animateTranslation(Spatial spatial, Vector3f translation, float duration, Easing easing, AnimationListener listener)
+    {
+        Vector3f start = spatial.getLocalTranslation();
+        return add(TRANSLATION, spatial, start.x, start.y, start.z, translation.x, translation.y, translation.z, duration, easing, listener);
+    }
+
+    /**
+     * Scales the spatial to the given (local) scale.
+     */
+    public int animateScale(Spatial spatial, Vector3f scale, float duration, Easing easing, AnimationListener listener)
+    {
+        Vector3f start = spatial.getLocalScale();
+        return add(SCALE, spatial, start.x, start.y, start.z, scale.x, scale.y, scale.z, duration, easing, listener);
+    }
+
+    /**
+     * Fades the "Color" parameter of the material to the given alpha.
+     */
+    public int animateAlpha(Material material, float alpha, float duration, Easing easing, AnimationListener listener)
+    {
+        MatParam color = material.getParam("Color");
+        float start = color != null ? ((ColorRGBA) color.getValue()).a : 1;
+        int result = add(ALPHA, material, start, 0, 0, alpha, 0, 0, duration, easing, listener);
+        colors[count - 1] = color != null ? ((ColorRGBA) color.getValue()).clone() : null;
+        return result;
+    }
+
+    /**
+     * Animates any value, from one value to the other.
+     */
+    public int animateValue(Target target, float start, float end, float duration, Easing easing, AnimationListener listener)
+    {
+        return add(VALUE, target, start, 0, 0, end, 0, 0, duration, easing, listener);
+    }
+
+    private int add(int channel, Object target, float x0, float y0, float z0, float x1, float y1, float z1, float duration, Easing easing, AnimationListener listener)
+    {
+        if (count == ids.length)
+        {
+            grow();
+        }
+
+        int i = count++;
+        ids[i] = nextId++;
+        channels[i] = channel;
+        curves[i] = easing.ordinal();
+        elapsed[i] = 0;
+        durations[i] = duration;
+        from[3 * i] = x0;
+        from[3 * i + 1] = y0;
+        from[3 * i + 2] = z0;
+        to[3 * i] = x1;
+        to[3 * i + 1] = y1;
+        to[3 * i + 2] = z1;
+        targets[i] = target;
+        listeners[i] = listener;
+        colors[i] = null;
+        return ids[i];
+    }
+
+    /**
+     * Doubles the capacity of all the arrays.
+     */
+    private void grow()
+    {
+        int capacity = Math.max(16, 2 * ids.length);
+        ids = Arrays.copyOf(ids, capacity);
+        channels = Arrays.copyOf(channels, capacity);
+        curves = Arrays.copyOf(curves, capacity);
+        elapsed = Arrays.copyOf(elapsed, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        from = Arrays.copyOf(from, 3 * capacity);
+        to = Arrays.copyOf(to, 3 * capacity);
+        targets = Arrays.copyOf(targets, capacity);
+        listeners = Arrays.copyOf(listeners, capacity);
+        colors = Arrays.copyOf(colors, capacity);
+        finishedIds = Arrays.copyOf(finishedIds, capacity);
+        finishedListeners = Arrays.copyOf(finishedListeners, capacity);
+    }
+
+    /**
+     * Advances all the animations, then notifies the listeners of the ones
+     * that ended. The listeners may start new animations.
+     */
+    public void update(float tpf)
+    {
+        int finished = 0;
+        for (int i = 0; i < count; i++)
+        {
+            elapsed[i] += tpf;
+            float progress = elapsed[i] >= durations[i] ? 1 : elapsed[i] / durations[i];
+            float f = easings[curves[i]].apply(progress);
+            apply(i, f);
+
+            if (progress == 1)
+            {
+                if (listeners[i] != null)
+                {
+                    finishedIds[finished] = ids[i];
+                    finishedListeners[finished] = listeners[i];
+                    finished++;
+                }
+                remove(i--);
+            }
+        }
+
+        for (int i = 0; i < finished; i++)
+        {
+            AnimationListener listener = finishedListeners[i];
+            finishedListeners[i] = null;
+            listener.animationFinished(finishedIds[i], true);
+        }
+    }
+
+    /**
+     * Sets the animated value at the given fraction of the way.
+     */
+    private void apply(int i, float f)
+    {
+        float x = from[3 * i] + (to[3 * i] - from[3 * i]) * f;
+        float y = from[3 * i + 1] + (to[3 * i + 1] - from[3 * i + 1]) * f;
+        float z = from[3 * i + 2] + (to[3 * i + 2] - from[3 * i + 2]) * f;
+        switch (channels[i])
+        {
+        case TRANSLATION:
+            ((Spatial) targets[i]).setLocalTranslation(x, y, z);
+            break;
+        case SCALE:
+            ((Spatial) targets[i]).setLocalScale(x, y, z);
+            break;
+        case ALPHA:
+            if (colors[i] != null)
+            {
+                // Change the animation's own copy, then let the material know.
+                colors[i].a = x;
+                ((Material) targets[i]).setColor("Color", colors[i]);
+            }
+            break;
+        default:
+            ((Target) targets[i]).setAnimatedValue(x);
+        }
+    }
+
+    /**
+     * Removes the animation at the given index, moving the last one there.
+     */
+    private void remove(int i)
+    {
+        count--;
+        ids[i] = ids[count];
+        channels[i] = channels[count];
+        curves[i] = curves[count];
+        elapsed[i] = elapsed[count];
+        durations[i] = durations[count];
+        System.arraycopy(from, 3 * count, from, 3 * i, 3);
+        System.arraycopy(to, 3 * count, to, 3 * i, 3);
+        targets[i] = targets[count];
+        listeners[i] = listeners[count];
+        colors[i] = colors[count];
+        targets[count] = null;
+        listeners[count] = null;
+        colors[count] = null;
+    }
+
+    /**
+     * Stops the animation where it is. Its listener is notified.
+     */
+    public void cancel(int animation)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            if (ids[i] == animation)
+            {
+                AnimationListener listener = listeners[i];
+                remove(i);
+                if (listener != null)
+                {
+                    listener.animationFinished(animation, false);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the animation is still running.
+     */
+    public boolean isRunning(int animation)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            if (ids[i] == animation)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of running animations.
+     */
+    public int getCount()
+    {
+        return count;
+    }
+}
@@ -0,0 +1,47 @@
+package menu.animations;
+
+/**
+ * Easing curves, mapping the progress of an animation (from 0 to 1) to the
+ * fraction of the way done (from 0 to 1, at both ends).
+ */
+public enum Easing
+{
+    LINEAR
+    {
+        @Override
+        public float apply(float t)
+        {
+            return t;
+        }
+    },
+    // Starts slowly.
+    EASE_IN
+    {
+        @Override
+        public float apply(float t)
+        {
+            return t * t * t;
+        }
+    },
+    // Ends slowly.
+    EASE_OUT
+    {
+        @Override
+        public float apply(float t)
+        {
+            float u = 1 - t;
+            return 1 - u * u * u;
+        }
+    },
+    // Starts and ends slowly.
+    EASE_IN_OUT
+    {
+        @Override
+        public float apply(float t)
+        {
+            return t < 0.5f ? 4 * t * t * t : 1 - 4 * (1 - t) * (1 - t) * (1 - t);
+        }
+    };
+
+    public abstract float apply(float t);
+}
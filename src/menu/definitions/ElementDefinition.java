@@ -0,0 +1,156 @@
+package menu.definitions;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * The description of one menu element, as read from a menu definition: what
+ * to build, and where to place it in its parent panel. The compiler resolves
+ * the element's own size, so that the loader can place it without building
+ * any glyph.
+ */
+class ElementDefinition
+{
+    enum Type
+    {
+        PANEL, LABEL, BUTTON, SLIDER, CHOOSER, CAROUSEL
+    };
+
+    enum Align
+    {
+        LEFT, CENTER, RIGHT
+    };
+    Type type;
+    // The name the element can be retrieved with, or "" if none.
+    String name = "";
+    // The index of the font in the definition's font table, -1 to inherit it.
+    int font = -1;
+    // The position and size, as fractions of the parent panel (NaN if unset).
+    float x = Float.NaN;
+    float y = Float.NaN;
+    float width = Float.NaN;
+    float height = Float.NaN;
+    // A uniform scale, used if neither width nor height is set (NaN if unset).
+    float scale = Float.NaN;
+    Align align = Align.LEFT;
+    // The element's own size, resolved by the compiler.
+    float localWidth;
+    float localHeight;
+    // The text of labels and buttons.
+    String text = "";
+    // The most values, items or children an element has: their counts are
+    // stored as unsigned shorts, like the number of cursors of sliders.
+    static final int maxCount = 0xffff;
+    int count = 1;
+    // The orientation of value choosers and carousels, and the item size of
+    // carousels.
+    boolean vertical = false;
+    float itemSize = 0.5f;
+    // The values of value choosers, the item texts of carousels.
+    ArrayList<String> values = new ArrayList<>();
+    // A hidden panel is built, but not added to its parent (e.g., the
+    // destination of a transition).
+    boolean hidden = false;
+    ArrayList<ElementDefinition> children = new ArrayList<>();
+
+    ElementDefinition(Type type)
+    {
+        this.type = type;
+    }
+
+    void write(DataOutput out) throws IOException
+    {
+        out.writeByte(type.ordinal());
+        out.writeUTF(name);
+        out.writeShort(font);
+        out.writeFloat(x);
+        out.writeFloat(y);
+        out.writeFloat(width);
+        out.writeFloat(height);
+        out.writeFloat(scale);
+        out.writeByte(align.ordinal());
+        out.writeFloat(localWidth);
+        out.writeFloat(localHeight);
+
+        switch (type)
+        {
+        case LABEL:
+        case BUTTON:
+            out.writeUTF(text);
+            break;
+        case SLIDER:
+            out.writeShort(count);
+            break;
+        case CHOOSER:
+        case CAROUSEL:
+            out.writeBoolean(vertical);
+            out.writeFloat(itemSize);
+            out.writeShort(values.size());
+            for (String value : values)
+            {
+                out.writeUTF(value);
+            }
+            break;
+        case PANEL:
+            out.writeBoolean(hidden);
+            out.writeShort(children.size());
+            for (ElementDefinition child : children)
+            {
+                child.write(out);
+            }
+            break;
+        }
+    }
+
+    static ElementDefinition read(DataInput in) throws IOException
+    {
+        int type = in.readByte();
+        if (type < 0 || type >= Type.values().length)
+        {
+            throw new IOException("Unknown element type: " + type);
+        }
+        ElementDefinition result = new ElementDefinition(Type.values()[type]);
+        result.name = in.readUTF();
+        result.font = in.readShort();
+        result.x = in.readFloat();
+        result.y = in.readFloat();
+        result.width = in.readFloat();
+        result.height = in.readFloat();
+        result.scale = in.readFloat();
+        result.align = Align.values()[in.readByte()];
+        result.localWidth = in.readFloat();
+        result.localHeight = in.readFloat();
+
+        switch (result.type)
+        {
+        case LABEL:
+        case BUTTON:
+            result.text = in.readUTF();
+            break;
+        case SLIDER:
+            result.count = in.readUnsignedShort();
+            break;
+        case CHOOSER:
+        case CAROUSEL:
+            result.vertical = in.readBoolean();
+            result.itemSize = in.readFloat();
+            int valueCount = in.readUnsignedShort();
+            for (int i = 0; i < valueCount; i++)
+            {
+                result.values.add(in.readUTF());
+            }
+            break;
+        case PANEL:
+            result.hidden = in.readBoolean();
+            int childCount = in.readUnsignedShort();
+            for (int i = 0; i < childCount; i++)
+            {
+                result.children.add(read(in));
+            }
+            break;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,290 @@
+package menu.definitions;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.TreeSet;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import menu.elements.MenuElement;
+import menu.utils.Jme3DFont;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Compiles an XML menu definition into the binary form read by MenuLoader.
+ * The compiled form holds the size of each element, measured with its font,
+ * and the glyphs used by each font, so that loading needs neither.
+ *
+ * A definition looks like:
+ * <pre>
+ * &lt;menu font="Arial" extruded="true"&gt;
+ *     &lt;label text="Title" x="0.5" y="0.88" height="0.1" align="center"/&gt;
+ *     &lt;panel name="options" width="1" height="0.8" hidden="true"&gt;
+ *         &lt;button name="back" text="Back" x="0.1" y="0.1" scale="0.5"/&gt;
+ *         &lt;slider name="volume" count="2" x="0.1" y="0.5" width="0.4"/&gt;
+ *         &lt;chooser name="level" vertical="true" x="0.6" y="0.5"&gt;
+ *             &lt;value&gt;Easy&lt;/value&gt;
+ *             &lt;value&gt;Hard&lt;/value&gt;
+ *         &lt;/chooser&gt;
+ *         &lt;carousel horizontal="true" itemSize="0.5"&gt;
+ *             &lt;item text="A"/&gt;
+ *         &lt;/carousel&gt;
+ *     &lt;/panel&gt;
+ * &lt;/menu&gt;
+ * </pre>
+ * Positions and sizes are fractions of the parent panel. For a panel, they
+ * define the sub-panel; for other elements, setting either the width or the
+ * height keeps the proportions. Any element can set its own font.
+ */
+public class MenuCompiler
+{
+    static final int magic = 0x334d454e;
+    static final short version = 2;
+    // The fonts used, by index, and the glyphs used with each.
+    private ArrayList<String> fontNames = new ArrayList<>();
+    private ArrayList<Boolean> fontExtrusions = new ArrayList<>();
+    private ArrayList<TreeSet<Character>> glyphs = new ArrayList<>();
+    private HashSet<String> names = new HashSet<>();
+
+    /**
+     * Usage: MenuCompiler definition.xml menu.bin
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 2)
+        {
+            System.err.println("Usage: MenuCompiler <definition.xml> <compiled menu>");
+            System.exit(1);
+        }
+
+        try (InputStream in = new FileInputStream(args[0]);
+                OutputStream out = new FileOutputStream(args[1]))
+        {
+            compile(in, out);
+        }
+    }
+
+    /**
+     * Reads the XML definition, and writes its compiled form.
+     */
+    public static void compile(InputStream definition, OutputStream out) throws IOException
+    {
+        Element root;
+        try
+        {
+            root = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(definition).getDocumentElement();
+        }
+        catch (ParserConfigurationException | SAXException ex)
+        {
+            throw new IOException("Invalid menu definition.", ex);
+        }
+        if (!root.getTagName().equals("menu"))
+        {
+            throw new IOException("A menu definition starts with <menu>.");
+        }
+
+        MenuCompiler compiler = new MenuCompiler();
+        ElementDefinition menu = compiler.parse(root, -1);
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(magic);
+        data.writeShort(version);
+        data.writeShort(compiler.fontNames.size());
+        for (int i = 0; i < compiler.fontNames.size(); i++)
+        {
+            data.writeUTF(compiler.fontNames.get(i));
+            data.writeBoolean(compiler.fontExtrusions.get(i));
+            StringBuilder fontGlyphs = new StringBuilder();
+            for (char c : compiler.glyphs.get(i))
+            {
+                fontGlyphs.append(c);
+            }
+            data.writeUTF(fontGlyphs.toString());
+        }
+        menu.write(data);
+        data.flush();
+    }
+
+    /**
+     * Reads an element and its children.
+     *
+     * @param inheritedFont The index of the parent's font, -1 if none.
+     */
+    private ElementDefinition parse(Element element, int inheritedFont) throws IOException
+    {
+        ElementDefinition result = new ElementDefinition(parseType(element.getTagName()));
+        result.name = element.getAttribute("name");
+        if (!result.name.isEmpty() && !names.add(result.name))
+        {
+            throw new IOException("Two elements are named " + result.name + ".");
+        }
+
+        if (element.hasAttribute("font") || element.hasAttribute("extruded"))
+        {
+            String fontName = element.hasAttribute("font") ? element.getAttribute("font") : "Arial";
+            result.font = getFontIndex(fontName, !element.getAttribute("extruded").equals("false"));
+        }
+        int font = result.font != -1 ? result.font : inheritedFont;
+
+        result.x = parseFloat(element, "x");
+        result.y = parseFloat(element, "y");
+        result.width = parseFloat(element, "width");
+        result.height = parseFloat(element, "height");
+        result.scale = parseFloat(element, "scale");
+        if (element.hasAttribute("align"))
+        {
+            try
+            {
+                result.align = ElementDefinition.Align.valueOf(element.getAttribute("align").toUpperCase());
+            }
+            catch (IllegalArgumentException ex)
+            {
+                throw new IOException("Unknown alignment: " + element.getAttribute("align"));
+            }
+        }
+        result.text = element.getAttribute("text");
+        if (element.hasAttribute("count"))
+        {
+            result.count = (int) parseFloat(element, "count");
+            if (result.count < 1 || result.count > ElementDefinition.maxCount)
+            {
+                throw new IOException("A slider has from 1 to " + ElementDefinition.maxCount + " values.");
+            }
+        }
+        result.vertical = element.getAttribute("vertical").equals("true") || element.getAttribute("horizontal").equals("false");
+        if (element.hasAttribute("itemSize"))
+        {
+            result.itemSize = parseFloat(element, "itemSize");
+        }
+        result.hidden = element.getAttribute("hidden").equals("true");
+
+        NodeList nodes = element.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++)
+        {
+            Node node = nodes.item(i);
+            if (node.getNodeType() != Node.ELEMENT_NODE)
+            {
+                continue;
+            }
+
+            Element child = (Element) node;
+            if (child.getTagName().equals("value") && result.type == ElementDefinition.Type.CHOOSER)
+            {
+                result.values.add(child.getTextContent().trim());
+            }
+            else if (child.getTagName().equals("item") && result.type == ElementDefinition.Type.CAROUSEL)
+            {
+                result.values.add(child.getAttribute("text"));
+            }
+            else if (result.type == ElementDefinition.Type.PANEL)
+            {
+                result.children.add(parse(child, font));
+            }
+            else
+            {
+                throw new IOException("Unexpected <" + child.getTagName() + "> in <" + element.getTagName() + ">.");
+            }
+        }
+
+        if (result.values.size() > ElementDefinition.maxCount || result.children.size() > ElementDefinition.maxCount)
+        {
+            throw new IOException("<" + element.getTagName() + "> has more than " + ElementDefinition.maxCount + " values or children.");
+        }
+
+        if (result.type != ElementDefinition.Type.PANEL)
+        {
+            if (font == -1)
+            {
+                throw new IOException("No font for <" + element.getTagName() + ">.");
+            }
+            useGlyphs(font, result.text);
+            for (String value : result.values)
+            {
+                useGlyphs(font, value);
+            }
+            measure(result, Jme3DFont.get(fontNames.get(font), fontExtrusions.get(font)));
+        }
+        return result;
+    }
+
+    /**
+     * Resolves the size of the element, by building it with its font.
+     */
+    private static void measure(ElementDefinition definition, Jme3DFont font)
+    {
+        MenuElement element = MenuLoader.createElement(definition, font);
+        element.setMenuFont(font);
+        definition.localWidth = element.getLocalWidth();
+        definition.localHeight = element.getLocalHeight();
+    }
+
+    private static ElementDefinition.Type parseType(String tag) throws IOException
+    {
+        switch (tag)
+        {
+        case "menu":
+        case "panel":
+            return ElementDefinition.Type.PANEL;
+        case "label":
+            return ElementDefinition.Type.LABEL;
+        case "button":
+            return ElementDefinition.Type.BUTTON;
+        case "slider":
+            return ElementDefinition.Type.SLIDER;
+        case "chooser":
+            return ElementDefinition.Type.CHOOSER;
+        case "carousel":
+            return ElementDefinition.Type.CAROUSEL;
+        default:
+            throw new IOException("Unknown element: <" + tag + ">.");
+        }
+    }
+
+    private static float parseFloat(Element element, String attribute) throws IOException
+    {
+        if (!element.hasAttribute(attribute))
+        {
+            return Float.NaN;
+        }
+        try
+        {
+            return Float.parseFloat(element.getAttribute(attribute));
+        }
+        catch (NumberFormatException ex)
+        {
+            throw new IOException("Invalid " + attribute + " in <" + element.getTagName() + ">.", ex);
+        }
+    }
+
+    private int getFontIndex(String fontName, boolean extruded)
+    {
+        for (int i = 0; i < fontNames.size(); i++)
+        {
+            if (fontNames.get(i).equals(fontName) && fontExtrusions.get(i) == extruded)
+            {
+                return i;
+            }
+        }
+        fontNames.add(fontName);
+        fontExtrusions.add(extruded);
+        glyphs.add(new TreeSet<Character>());
+        return fontNames.size() - 1;
+    }
+
+    private void useGlyphs(int font, String text)
+    {
+        for (char c : text.toCharArray())
+        {
+            glyphs.get(font).add(c);
+        }
+    }
+}
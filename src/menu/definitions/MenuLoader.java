@@ -0,0 +1,195 @@
+package menu.definitions;
+
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import menu.elements.Button;
+import menu.elements.Label;
+import menu.elements.MenuElement;
+import menu.elements.NSlider;
+import menu.elements.Panel;
+import menu.elements.ValueChooser;
+import menu.utils.Jme3DFont;
+
+/**
+ * Builds a menu from its compiled definition (see MenuCompiler). The sizes of
+ * the elements are read from the definition, so nothing is measured while
+ * loading: the glyphs are built in the background as soon as the font table
+ * is read, and the elements are only refreshed on the next update.
+ */
+public class MenuLoader
+{
+    /**
+     * Builds the menu read from the given stream into the root panel.
+     *
+     * @return the named elements (including the hidden panels), by name.
+     */
+    public static Map<String, MenuElement> load(InputStream in, Panel root) throws IOException
+    {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MenuCompiler.magic || data.readShort() != MenuCompiler.version)
+        {
+            throw new IOException("Not a compiled menu definition.");
+        }
+
+        // Start building the glyphs right away.
+        Jme3DFont fonts[] = new Jme3DFont[data.readShort()];
+        for (int i = 0; i < fonts.length; i++)
+        {
+            fonts[i] = Jme3DFont.get(data.readUTF(), data.readBoolean());
+            prewarm(fonts[i], data.readUTF());
+        }
+
+        ElementDefinition definition = ElementDefinition.read(data);
+        if (definition.font != -1)
+        {
+            root.setMenuFont(fonts[definition.font]);
+        }
+
+        Map<String, MenuElement> result = new LinkedHashMap<>();
+        addChildren(root, definition, fonts, root.getMenuFont(), result);
+        return result;
+    }
+
+    private static void prewarm(final Jme3DFont font, final String glyphs)
+    {
+        if (!glyphs.isEmpty())
+        {
+            Panel.getPreparationExecutor().submit(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    font.prepare(glyphs);
+                }
+            });
+        }
+    }
+
+    /**
+     * Builds the children of the given panel.
+     *
+     * @param panelFont The font of the panel, set or inherited.
+     */
+    private static void addChildren(Panel panel, ElementDefinition definition, Jme3DFont fonts[], Jme3DFont panelFont, Map<String, MenuElement> names)
+    {
+        for (ElementDefinition child : definition.children)
+        {
+            MenuElement element;
+            Jme3DFont font = child.font != -1 ? fonts[child.font] : panelFont;
+            if (child.type == ElementDefinition.Type.PANEL)
+            {
+                Panel subPanel = panel.createSubPanel(
+                        new Vector2f(valueOr(child.x, 0), valueOr(child.y, 0)),
+                        new Vector2f(valueOr(child.width, 1), valueOr(child.height, 1)));
+                // A hidden panel has no parent to inherit its style from.
+                if (child.font != -1 || child.hidden)
+                {
+                    subPanel.setMenuFont(font);
+                }
+                if (child.hidden && panel.getMenuMaterial() != null)
+                {
+                    subPanel.setMenuMaterial(panel.getMenuMaterial());
+                }
+                if (!child.hidden)
+                {
+                    panel.add(subPanel);
+                }
+                addChildren(subPanel, child, fonts, font, names);
+                element = subPanel;
+            }
+            else
+            {
+                element = createElement(child, font);
+                if (child.font != -1)
+                {
+                    element.setMenuFont(font);
+                }
+                place(element, child, panel);
+                panel.add(element);
+            }
+
+            if (!child.name.isEmpty())
+            {
+                names.put(child.name, element);
+            }
+        }
+    }
+
+    /**
+     * Creates the element described (but not its sub-elements, for a panel).
+     *
+     * @param font The font the element will be displayed with.
+     */
+    static MenuElement createElement(ElementDefinition definition, Jme3DFont font)
+    {
+        switch (definition.type)
+        {
+        case LABEL:
+            return new Label(definition.text);
+        case BUTTON:
+            return new Button(definition.text);
+        case SLIDER:
+            return new NSlider(definition.count);
+        case CHOOSER:
+            return new ValueChooser<>(font, definition.values, definition.vertical);
+        case CAROUSEL:
+            // Its texts are built on its first refresh.
+            return new TextCarousel(!definition.vertical, definition.itemSize, definition.values);
+        default:
+            throw new IllegalArgumentException("Panels are created by their parent.");
+        }
+    }
+
+    /**
+     * Scales and moves the element in its parent panel, from the size
+     * resolved by the compiler.
+     */
+    private static void place(MenuElement element, ElementDefinition definition, Panel parent)
+    {
+        float scale = valueOr(definition.scale, 1);
+        Vector3f scales = new Vector3f(scale, scale, scale);
+        if (!Float.isNaN(definition.width) && definition.localWidth > 0)
+        {
+            scales.x = parent.getLocalWidth() * definition.width / definition.localWidth;
+        }
+        if (!Float.isNaN(definition.height) && definition.localHeight > 0)
+        {
+            scales.y = parent.getLocalHeight() * definition.height / definition.localHeight;
+        }
+        // Setting only one of the sizes keeps the proportions.
+        if (Float.isNaN(definition.height))
+        {
+            scales.y = scales.z = scales.x;
+        }
+        else if (Float.isNaN(definition.width))
+        {
+            scales.x = scales.z = scales.y;
+        }
+        element.setLocalScale(scales);
+
+        // Keep the depth given by the element (carousels are pushed back).
+        Vector3f translation = element.getLocalTranslation().clone();
+        if (!Float.isNaN(definition.x))
+        {
+            translation.x = definition.x * parent.getLocalWidth();
+        }
+        if (!Float.isNaN(definition.y))
+        {
+            translation.y = definition.y * parent.getLocalHeight();
+        }
+        // Aligning moves the element left by none, half or all of its width.
+        translation.x -= definition.align.ordinal() * 0.5f * definition.localWidth * scales.x;
+        element.setLocalTranslation(translation);
+    }
+
+    private static float valueOr(float value, float defaultValue)
+    {
+        return Float.isNaN(value) ? defaultValue : value;
+    }
+}
@@ -0,0 +1,131 @@
+package menu.definitions;
+
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.material.Material;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import menu.elements.Carousel;
+import menu.utils.Jme3DFont;
+import menu.utils.MeshUtils;
+
+/**
+ * A carousel of texts, as built from a menu definition. The items are empty
+ * nodes until the first refresh, which builds their texts with the font and
+ * material of the carousel: nothing is built while loading.
+ */
+public class TextCarousel extends Carousel<Node>
+{
+    private ArrayList<Node> items = new ArrayList<>();
+
+    public TextCarousel(boolean horizontal, float itemSize, List<String> texts)
+    {
+        super(horizontal, itemSize);
+        for (String text : texts)
+        {
+            Node item = new Node(text);
+            items.add(item);
+            addElements(item);
+        }
+    }
+
+    /**
+     * Only used when loading.
+     */
+    public TextCarousel()
+    {
+    }
+
+    /**
+     * The texts can only be built once the carousel has a font.
+     */
+    @Override
+    protected boolean canRefresh()
+    {
+        return getMenuFont() != null;
+    }
+
+    /**
+     * Builds the texts not built yet, centered on their items, and gives all
+     * of them the carousel's material.
+     */
+    @Override
+    protected void refresh()
+    {
+        Jme3DFont font = getMenuFont();
+        Material material = getMenuMaterial();
+        for (Node item : items)
+        {
+            if (item.getQuantity() == 0)
+            {
+                String text = item.getName();
+                Vector3f size = new Vector3f();
+                for (char c : text.toCharArray())
+                {
+                    Vector3f glyphSize = font.getGlyphSize(c);
+                    size.x += glyphSize.x * Jme3DFont.spacingRatio;
+                    size.y = Math.max(size.y, glyphSize.y);
+                    size.z = Math.max(size.z, glyphSize.z);
+                }
+
+                Node stringNode = font.getStringNode(text);
+                stringNode.setLocalTranslation(size.multLocal(-0.5f));
+                item.attachChild(stringNode);
+            }
+            if (material != null)
+            {
+                item.setMaterial(material);
+            }
+        }
+        super.refresh();
+    }
+
+    /**
+     * The texts are built by the carousel: they are dropped, and built again
+     * on the next refresh.
+     */
+    @Override
+    protected void release()
+    {
+        super.release();
+        for (Node item : items)
+        {
+            item.detachAllChildren();
+        }
+    }
+
+    @Override
+    public long getMemoryUsage()
+    {
+        long result = 0;
+        for (Node item : items)
+        {
+            for (Spatial text : item.getChildren())
+            {
+                result += MeshUtils.getMemoryUsage(text);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void write(JmeExporter ex) throws IOException
+    {
+        super.write(ex);
+        ex.getCapsule(this).writeSavableArrayList(items, "textItems", null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void read(JmeImporter im) throws IOException
+    {
+        super.read(im);
+        InputCapsule capsule = im.getCapsule(this);
+        items = capsule.readSavableArrayList("textItems", new ArrayList<Node>());
+    }
+}
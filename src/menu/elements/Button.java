@@ -1,80 +1,59 @@
-package menu.elements;
-
-import com.jme3.input.controls.ActionListener;
-import com.jme3.math.Vector3f;
-import com.jme3.scene.Geometry;
-import com.jme3.scene.shape.Box;
-import com.jme3.scene.shape.Quad;
-import java.util.ArrayList;
-import menu.utils.Materials;
-
-/**
- * A Button is a clickable Label, with an invisible box to catch clicks between
- * characters.
- */
-public class Button extends Label
-{
-    private ArrayList<ActionListener> actionListeners = new ArrayList<>();
-
-    /**
-     * Creates a button with the specified text as a label.
-     */
-    public Button(String text)
-    {
-        super(text);
-        setName("Button");
-    }
-
-    /**
-     * When clicked, fire all action listeners.
-     */
-    @Override
-    public void processClick(boolean pressedOrReleased, Vector3f cursorPosition)
-    {
-        // If the button has been released, and the button is enabled:
-        if (enabled && !pressedOrReleased)
-        {
-            for (ActionListener listener : actionListeners)
-            {
-                listener.onAction(name, true, queueDistance);
-            }
-        }
-    }
-
-    /**
-     * Adds an action listener to this button, that will be fired at each click.
-     */
-    public void addActionListener(ActionListener listener)
-    {
-        actionListeners.add(listener);
-    }
-
-    @Override
-    public void refresh()
-    {
-        // Delete everything, not just the label.
-        detachAllChildren();
-        // Refresh the label...
-        super.refresh();
-
-        // Then (re-)create an invisible Box or Quad to intercept clicks.
-        Geometry invisibleGeometry;
-        if (getMenuFont().isExtruded())
-        {
-            // Generate an invisible box to intercept clicks.
-            Box invisibleBox = new Box(getLocalWidth(),getLocalHeight(),getLocalDepth());
-            invisibleGeometry = new Geometry("invisibleBox", invisibleBox);
-        }
-        else
-        {
-           // Vector3f maxBound = getLocalMaxBound();
-            // For a 2D font, only create a quad.
-            Quad invisibleQuad = new Quad(getLocalWidth(), getLocalHeight());
-            invisibleGeometry = new Geometry("invisibleQuad", invisibleQuad);
-        }
-
-        // Attach the invisible geometry around the button.
-        invisibleGeometry.setMaterial(Materials.invisibleMaterial);
-        attachChild(invisibleGeometry);
-    }
-}
+package menu.elements;
+
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import menu.utils.MeshUtils;
+
+/**
+ * A Button is a clickable Label, with an invisible box to catch clicks between
+ * characters.
+ */
+public class Button extends Label
+{
+    private Geometry hitGeometry = null;
+    /**
+     * Creates a button with the specified text as a label.
+     */
+    public Button(String text)
+    {
+        super(text);
+        setName("Button");
+    }
+
+    /**
+     * Only used when loading.
+     */
+    public Button()
+    {
+        this("");
+    }
+
+    /**
+     * When clicked, fire an action event.
+     */
+    @Override
+    public void processClick(boolean pressedOrReleased, Vector3f cursorPosition)
+    {
+        // If the button has been released, and the button is enabled:
+        if (enabled && !pressedOrReleased)
+        {
+            fireAction(text);
+        }
+    }
+
+    @Override
+    public void refresh()
+    {
+        // Delete everything, not just the label.
+        detachAllChildren();
+        // Refresh the label...
+        super.refresh();
+
+        // Then resize the invisible Box (or Quad, for a 2D font) intercepting
+        // clicks. Its mesh is shared by all the buttons.
+        hitGeometry = MeshUtils.setHitGeometry(hitGeometry, getMenuFont().isExtruded(), getLocalWidth(), getLocalHeight(), getLocalDepth());
+
+        // Attach the invisible geometry around the button.
+        attachChild(hitGeometry);
+    }
+}
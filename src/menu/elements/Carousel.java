@@ -1,15 +1,23 @@
 package menu.elements;
 
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
 import com.jme3.math.FastMath;
 import com.jme3.math.Matrix3f;
 import com.jme3.math.Quaternion;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Spatial;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
 
 /**
- * A rotating carousel to display and choose elements (nodes).
+ * A rotating carousel to display and choose elements (nodes). Only the items
+ * nearest the front are attached, and the ones turned away from the front
+ * can be replaced by a low-detail version, or culled.
  */
 public class Carousel<T extends Spatial> extends MenuElement
 {
@@ -18,6 +26,28 @@ public class Carousel<T extends Spatial> extends MenuElement
     private float itemSize = 2f;
     private int currentIndex = 0;
     private boolean horizontal = true;
+    // If true, the selected element keeps spinning on itself.
+    private boolean spinSelection = true;
+    // The maximum number of items attached, around the front one.
+    private int visibleItems = 12;
+    // Items further than this angle from the front are shown in low detail.
+    private float detailAngle = FastMath.PI;
+    private IdentityHashMap<T, Spatial> lowDetails = new IdentityHashMap<>();
+    // The spatials attached (items or low-detail versions), and the front
+    // item they were chosen for.
+    private ArrayList<Spatial> shown = new ArrayList<>();
+    private ArrayList<Spatial> toShow = new ArrayList<>();
+    private int shownFront = -1;
+    // The carousel turns on a critically damped spring: its angle, speed and
+    // target are kept as scalars, and the rotation is written in place.
+    private static final float stiffness = 10f;
+    // A small rotation, to see the items "from above".
+    private static final float tilt = 0.002f;
+    private float angle = 0;
+    private float angularVelocity = 0;
+    private float targetAngle = 0;
+    private boolean settled = true;
+    private final Quaternion rotation = new Quaternion();
 
     /**
      * Creates a carousel that can hold nodes, and select one of them.
@@ -33,55 +63,141 @@ public class Carousel<T extends Spatial> extends MenuElement
         this.itemSize = itemSize;
         //Push the node back so that the front node will end up at Z = 0.
         setLocalTranslation(0, 0, -radius);
+        applyAngle();
     }
 
     /**
-     * Adds an element to the list and refreshes the nodes.
+     * Only used when loading.
+     */
+    public Carousel()
+    {
+    }
+
+    /**
+     * Adds an element to the list. The nodes are refreshed on the next
+     * validation.
      */
     public void addElements(T... elementsToAdd)
     {
         elements.addAll(Arrays.asList(elementsToAdd));
 
-        refresh();
+        invalidate();
+        setActive(true);
+    }
+
+    /**
+     * Sets the low-detail version of an element, shown instead of it when it
+     * is turned away from the front (see setDetailAngle).
+     */
+    public void setLowDetail(T element, Spatial lowDetail)
+    {
+        lowDetails.put(element, lowDetail);
+        invalidate();
     }
 
     /**
-     * Refreshes the nodes on the carousel.
+     * Refreshes the nodes on the carousel. Only the ones near the front are
+     * placed and attached.
      */
     @Override
     protected void refresh()
     {
-        detachAllChildren();
+        // The spacing changed: turn to the selection's new angle, by the
+        // shortest way, and place the shown items again.
+        if (!elements.isEmpty())
+        {
+            float target = -currentIndex * FastMath.TWO_PI / elements.size();
+            targetAngle = target + FastMath.TWO_PI * Math.round((angle - target) / FastMath.TWO_PI);
+            settled = false;
+            setActive(true);
+        }
+        shownFront = -1;
+        updateShown();
+    }
+
+    /**
+     * Attaches the items nearest the front, in full or low detail, and
+     * detaches the others. Only does so when the front item changed.
+     */
+    private void updateShown()
+    {
+        int front = getFrontIndex();
+        if (front == shownFront)
+        {
+            return;
+        }
+
+        toShow.clear();
+        int count = Math.min(visibleItems, elements.size());
+        for (int k = 0; k < count; k++)
+        {
+            // Take the items on either side of the front one.
+            int index = (front - count / 2 + k + elements.size()) % elements.size();
+            T element = elements.get(index);
+            float offset = Math.abs(index - front) * FastMath.TWO_PI / elements.size();
+            Spatial spatial = Math.min(offset, FastMath.TWO_PI - offset) <= detailAngle ? element : lowDetails.get(element);
+            if (spatial != null)
+            {
+                place(index, spatial);
+                toShow.add(spatial);
+            }
+        }
 
-        // Add a small rotation to see the node "from above".
-        setLocalRotation(Quaternion.IDENTITY.clone().fromAngles(0, 0.002f, 0));
+        for (Spatial spatial : shown)
+        {
+            if (!toShow.contains(spatial))
+            {
+                detachChild(spatial);
+            }
+        }
+        for (Spatial spatial : toShow)
+        {
+            if (spatial.getParent() != this)
+            {
+                attachChild(spatial);
+            }
+        }
 
-        // Prepare a rotation matrix and a simple vector.
-        Quaternion q = new Quaternion(Quaternion.IDENTITY);
+        ArrayList<Spatial> swap = shown;
+        shown = toShow;
+        toShow = swap;
+        shownFront = front;
+    }
+
+    /**
+     * Places the spatial at the position of the given item on the circle.
+     */
+    private void place(int index, Spatial spatial)
+    {
         // The carousel is around X or Y axis, according to the orientation.
+        Quaternion q = new Quaternion();
+        float angle = index * FastMath.TWO_PI / elements.size();
         if (horizontal)
         {
-            q.fromAngles(0, FastMath.TWO_PI / elements.size(), 0);
+            q.fromAngles(0, angle, 0);
         }
         else
         {
-            q.fromAngles(FastMath.TWO_PI / elements.size(), 0, 0);
+            q.fromAngles(angle, 0, 0);
         }
 
-
         Matrix3f m = q.toRotationMatrix();
-        Vector3f vector = new Vector3f(0, 0, getRadius());
-        Vector3f up = new Vector3f(0, 1, 0);
+        spatial.setLocalTranslation(m.mult(new Vector3f(0, 0, getRadius())));
+        spatial.rotateUpTo(m.mult(Vector3f.UNIT_Y));
+    }
 
-        for (T element : elements)
+    /**
+     * Returns the index of the item closest to the front, -1 if there is none.
+     */
+    private int getFrontIndex()
+    {
+        if (elements.isEmpty())
         {
-            attachChild(element);
-            element.setLocalTranslation(vector);
-            element.rotateUpTo(up);
-            // Rotate the vector each time.
-            m.multLocal(vector);
-            m.multLocal(up);
+            return -1;
         }
+
+        int front = Math.round(-angle * elements.size() / FastMath.TWO_PI) % elements.size();
+        return front < 0 ? front + elements.size() : front;
     }
 
     /**
@@ -91,45 +207,159 @@ public class Carousel<T extends Spatial> extends MenuElement
     @Override
     public void update(float tpf)
     {
-        // On updating, make the carousel reach the right position:
-        float angleTarget = -currentIndex * FastMath.TWO_PI / elements.size();
-        // substract current position by selecting the relevant angle rotation:
+        if (elements.isEmpty())
+        {
+            setActive(false);
+            return;
+        }
+
+        // On updating, make the carousel reach the selection.
+        if (!settled)
+        {
+            advanceSpring(tpf);
+            applyAngle();
+        }
+        else if (!spinSelection)
+        {
+            // The carousel has settled: it doesn't need updating anymore.
+            setActive(false);
+        }
+
+        // Rotate the active node.
+        if (spinSelection)
+        {
+            elements.get(currentIndex).rotate(0, tpf, 0);
+        }
+
+        // Show the items around the new front one.
+        updateShown();
+    }
+
+    /**
+     * Moves the angle along the spring towards the target, using the exact
+     * solution of a critically damped spring: the motion is the same whatever
+     * the frame rate, and never overshoots.
+     */
+    private void advanceSpring(float tpf)
+    {
+        float offset = angle - targetAngle;
+        float decay = FastMath.exp(-stiffness * tpf);
+        float c = angularVelocity + stiffness * offset;
+        angle = targetAngle + (offset + c * tpf) * decay;
+        angularVelocity = (angularVelocity - stiffness * c * tpf) * decay;
+
+        // Once close enough, settle exactly on the target.
+        if (FastMath.abs(angle - targetAngle) < 0.0001f && FastMath.abs(angularVelocity) < 0.001f)
+        {
+            // Keep the angles small as the carousel turns round and round.
+            float turns = FastMath.TWO_PI * Math.round(targetAngle / FastMath.TWO_PI);
+            targetAngle -= turns;
+            angle = targetAngle;
+            angularVelocity = 0;
+            settled = true;
+        }
+    }
+
+    /**
+     * Writes the angle to the carousel rotation, along with the tilt.
+     */
+    private void applyAngle()
+    {
         if (horizontal)
         {
-            angleTarget -= getLocalRotation().toAngles(null)[1];
+            rotation.fromAngles(0, angle + tilt, 0);
         }
         else
         {
-            angleTarget -= getLocalRotation().toAngles(null)[0];
+            rotation.fromAngles(angle, tilt, 0);
         }
+        setLocalRotation(rotation);
+    }
 
+    /**
+     * Returns true if the carousel has reached the selection. If the
+     * selection doesn't spin either, it is no longer updated.
+     */
+    public boolean isIdle()
+    {
+        return settled && !spinSelection;
+    }
 
-        // Simplify too large rotations
-        if (angleTarget > FastMath.PI)
+    /**
+     * Saves all the items, attached or not, with their low-detail versions.
+     */
+    @Override
+    public void write(JmeExporter ex) throws IOException
+    {
+        super.write(ex);
+        ArrayList<T> detailedItems = new ArrayList<>(lowDetails.keySet());
+        ArrayList<Spatial> lowDetailItems = new ArrayList<>();
+        for (T item : detailedItems)
         {
-            angleTarget = angleTarget - FastMath.TWO_PI;
+            lowDetailItems.add(lowDetails.get(item));
         }
-        else if (angleTarget < -FastMath.PI)
+
+        OutputCapsule capsule = ex.getCapsule(this);
+        capsule.writeSavableArrayList(elements, "items", null);
+        capsule.writeSavableArrayList(detailedItems, "detailedItems", null);
+        capsule.writeSavableArrayList(lowDetailItems, "lowDetailItems", null);
+        capsule.write(horizontal, "horizontal", true);
+        capsule.write(itemSize, "itemSize", 2f);
+        capsule.write(radius, "radius", 2f);
+        capsule.write(currentIndex, "currentIndex", 0);
+        capsule.write(spinSelection, "spinSelection", true);
+        capsule.write(visibleItems, "visibleItems", 12);
+        capsule.write(detailAngle, "detailAngle", FastMath.PI);
+        capsule.write(angle, "angle", 0);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void read(JmeImporter im) throws IOException
+    {
+        super.read(im);
+        InputCapsule capsule = im.getCapsule(this);
+        elements = capsule.readSavableArrayList("items", new ArrayList<T>());
+        ArrayList<T> detailedItems = capsule.readSavableArrayList("detailedItems", new ArrayList<T>());
+        ArrayList<Spatial> lowDetailItems = capsule.readSavableArrayList("lowDetailItems", new ArrayList<Spatial>());
+        for (int i = 0; i < detailedItems.size(); i++)
         {
-            angleTarget = FastMath.TWO_PI + angleTarget;
+            lowDetails.put(detailedItems.get(i), lowDetailItems.get(i));
         }
+        horizontal = capsule.readBoolean("horizontal", true);
+        itemSize = capsule.readFloat("itemSize", 2f);
+        radius = capsule.readFloat("radius", 2f);
+        currentIndex = capsule.readInt("currentIndex", 0);
+        spinSelection = capsule.readBoolean("spinSelection", true);
+        visibleItems = capsule.readInt("visibleItems", 12);
+        detailAngle = capsule.readFloat("detailAngle", FastMath.PI);
+        angle = targetAngle = capsule.readFloat("angle", 0);
+        setActive(!elements.isEmpty());
+    }
 
-        // Avoid useless movements.
-        if (FastMath.abs(angleTarget) > 0.01f)
+    /**
+     * Detaches the items shown, attached again on the next refresh. The items
+     * themselves belong to the caller: they are not freed, nor counted in the
+     * memory usage.
+     */
+    @Override
+    protected void release()
+    {
+        for (Spatial spatial : shown)
         {
-            // Finally, rotate the carousel towards the front.
-            if (horizontal)
-            {
-                rotate(0, angleTarget * tpf * 5, 0);
-            }
-            else
-            {
-                rotate(angleTarget * tpf * 5, 0, 0);
-            }
+            detachChild(spatial);
         }
+        shown.clear();
+        shownFront = -1;
+    }
 
-        // Rotate the active node.
-        elements.get(currentIndex).rotate(0, tpf, 0);
+    /**
+     * A carousel keeps turning: it can't be merged with static elements.
+     */
+    @Override
+    protected boolean canBatch()
+    {
+        return false;
     }
 
     /**
@@ -158,6 +388,13 @@ public class Carousel<T extends Spatial> extends MenuElement
         {
             currentIndex += elements.size();
         }
+
+        // Turn towards the new selection, the way the wheel turned.
+        targetAngle -= step * FastMath.TWO_PI / elements.size();
+        settled = false;
+        setActive(true);
+
+        fireValueChanged(getSelected());
     }
 
     @Override
@@ -192,6 +429,54 @@ public class Carousel<T extends Spatial> extends MenuElement
         return radius + 2 * itemSize;
     }
 
+    /**
+     * @return true if the selected element spins on itself.
+     */
+    public boolean isSpinSelection()
+    {
+        return spinSelection;
+    }
+
+    /**
+     * If true, the selected element spins on itself - the carousel is then
+     * updated every frame. Otherwise, it only is while turning.
+     */
+    public void setSpinSelection(boolean spinSelection)
+    {
+        this.spinSelection = spinSelection;
+        setActive(true);
+    }
+
+    /**
+     * Sets the maximum number of items attached, around the front one. The
+     * others are neither drawn nor picked.
+     */
+    public void setVisibleItems(int visibleItems)
+    {
+        this.visibleItems = visibleItems;
+        invalidate();
+    }
+
+    public int getVisibleItems()
+    {
+        return visibleItems;
+    }
+
+    /**
+     * Sets the angle from the front beyond which items are replaced by their
+     * low-detail version, or culled if they have none.
+     */
+    public void setDetailAngle(float detailAngle)
+    {
+        this.detailAngle = detailAngle;
+        invalidate();
+    }
+
+    public float getDetailAngle()
+    {
+        return detailAngle;
+    }
+
     /**
      * @return the radius
      */
@@ -1,106 +1,337 @@
-package menu.elements;
-
-import com.jme3.material.Material;
-import com.jme3.math.Vector3f;
-import com.jme3.scene.Node;
-import menu.utils.Jme3DFont;
-
-/**
- * A label is a simple 3D text, intialized from the given text.
- */
-public class Label extends MenuElement
-{
-    protected String text;
-    protected Node stringNode;
-
-    public Label(String text)
-    {
-        setName("Label");
-        this.text = text;
-    }
-
-    /**
-     * Turns the given text into a mesh, that will be the label's physical
-     * representation.
-     */
-    public void setText(String text)
-    {
-        this.text = text;
-        refresh();
-    }
-
-    @Override
-    public void setMaterial(Material mat)
-    {
-        // Only change the string material.
-        if (stringNode != null)
-        {
-            stringNode.setMaterial(mat);
-        }
-    }
-
-    @Override
-    public void refresh()
-    {
-        // Discard the former string node.
-        if (stringNode != null && hasChild(stringNode))
-        {
-            detachChild(stringNode);
-        }
-
-        // Generate and attach the text mesh.
-        stringNode = getMenuFont().getStringNode(text);
-
-        // If there is a material set, apply it.
-        Material mat = getMenuMaterial();
-
-        if (mat != null)
-        {
-            setMaterial(mat);
-        }
-
-        attachChild(stringNode);
-    }
-
-    @Override
-    public float getLocalWidth()
-    {
-        Jme3DFont currentFont = getMenuFont();
-        float result = 0;
-        for (char c : text.toCharArray())
-        {
-            Vector3f glyphSize = currentFont.getGlyphSize(c);
-            result += glyphSize.x * Jme3DFont.spacingRatio;
-        }
-
-        return result;
-    }
-
-    @Override
-    public float getLocalHeight()
-    {
-        Jme3DFont currentFont = getMenuFont();
-        float result = 0;
-        for (char c : text.toCharArray())
-        {
-            Vector3f glyphSize = currentFont.getGlyphSize(c);
-            result = Math.max(result,glyphSize.y);
-        }
-
-        return result;
-    }
-    
-        @Override
-    public float getLocalDepth()
-    {
-        Jme3DFont currentFont = getMenuFont();
-        float result = 0;
-        for (char c : text.toCharArray())
-        {
-            Vector3f glyphSize = currentFont.getGlyphSize(c);
-            result = Math.max(result,glyphSize.z);
-        }
-
-        return result;
-    }
-}
+package menu.elements;
+
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.material.Material;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import menu.utils.Jme3DFont;
+import menu.utils.MeshUtils;
+
+/**
+ * A label is a simple 3D text, intialized from the given text.
+ */
+public class Label extends MenuElement
+{
+    // The text shown, which the label is measured from.
+    protected String text;
+    protected Node stringNode;
+    // In asynchronous mode, a new text is built in the background, and the
+    // former one stays shown (and measured) until then.
+    private boolean asynchronous = false;
+    // The text being built in the background, null if none.
+    private String pendingText = null;
+    // Bumped on each change: a build finishing after a newer change is
+    // dropped.
+    private int textVersion = 0;
+    private Future<Node> textBuild = null;
+    private int textBuildVersion;
+    // The text node built in the background, and its text, swapped in on the
+    // next refresh.
+    private Node builtNode = null;
+    private String builtText;
+
+    public Label(String text)
+    {
+        setName("Label");
+        this.text = text;
+    }
+
+    /**
+     * Only used when loading.
+     */
+    public Label()
+    {
+        this("");
+    }
+
+    /**
+     * Turns the given text into a mesh, that will be the label's physical
+     * representation.
+     */
+    public void setText(String text)
+    {
+        if (asynchronous && canRefresh())
+        {
+            pendingText = text;
+            buildText();
+        }
+        else
+        {
+            pendingText = null;
+            invalidate();
+            this.text = text;
+        }
+    }
+
+    /**
+     * In asynchronous mode, setText() builds the text meshes on the
+     * preparation thread, so that texts with new glyphs don't stall the
+     * rendering. The former text is shown until the new one is ready.
+     */
+    public void setAsynchronous(boolean asynchronous)
+    {
+        this.asynchronous = asynchronous;
+    }
+
+    public boolean isAsynchronous()
+    {
+        return asynchronous;
+    }
+
+    /**
+     * Starts building the pending text in the background. The build of a
+     * former text, if any, is dropped.
+     */
+    private void buildText()
+    {
+        if (textBuild != null)
+        {
+            textBuild.cancel(false);
+        }
+
+        final Jme3DFont font = getMenuFont();
+        final String builtText = pendingText;
+        textBuildVersion = ++textVersion;
+        textBuild = Panel.getPreparationExecutor().submit(new Callable<Node>()
+        {
+            @Override
+            public Node call()
+            {
+                return font.getStringNode(builtText);
+            }
+        });
+        // Check the build on each update until it is done.
+        setActive(true);
+    }
+
+    /**
+     * Swaps the text built in the background in, once it is ready.
+     */
+    @Override
+    public void update(float tpf)
+    {
+        if (textBuild == null || !textBuild.isDone())
+        {
+            return;
+        }
+
+        try
+        {
+            if (textBuildVersion == textVersion && !textBuild.isCancelled())
+            {
+                builtNode = textBuild.get();
+                builtText = pendingText;
+                pendingText = null;
+                markInvalid();
+            }
+        }
+        catch (InterruptedException | ExecutionException ex)
+        {
+            Logger.getLogger(Label.class.getName()).log(Level.WARNING, "Could not build the text in the background.", ex);
+            invalidate();
+        }
+        textBuild = null;
+        setActive(false);
+    }
+
+    /**
+     * Invalidating the label builds its text again on the next refresh: a
+     * text being built in the background is dropped, and built then instead.
+     */
+    @Override
+    public void invalidate()
+    {
+        dropBuild();
+        super.invalidate();
+    }
+
+    /**
+     * Drops the text being built or built in the background, if any: the
+     * last text set becomes the one to build on the next refresh.
+     */
+    private void dropBuild()
+    {
+        text = getLatestText();
+        pendingText = null;
+        textVersion++;
+        builtNode = null;
+    }
+
+    /**
+     * Returns the last text set, whether it is shown or still being built.
+     */
+    private String getLatestText()
+    {
+        if (pendingText != null)
+        {
+            return pendingText;
+        }
+        return builtNode != null ? builtText : text;
+    }
+
+    /**
+     * Same as setText(), from any thread (see MenuElement.post()).
+     */
+    public void postText(String text)
+    {
+        post(Property.TEXT, text);
+    }
+
+    @Override
+    void applyProperty(Property property, Object value)
+    {
+        if (property == Property.TEXT)
+        {
+            setText((String) value);
+        }
+        else
+        {
+            super.applyProperty(property, value);
+        }
+    }
+
+    @Override
+    public void setMaterial(Material mat)
+    {
+        // Only change the string material.
+        if (stringNode != null)
+        {
+            stringNode.setMaterial(mat);
+        }
+    }
+
+    @Override
+    public void refresh()
+    {
+        // Discard the former string node.
+        if (stringNode != null && hasChild(stringNode))
+        {
+            detachChild(stringNode);
+        }
+
+        // Generate and attach the text mesh, unless it was built in the
+        // background.
+        if (builtNode != null)
+        {
+            stringNode = builtNode;
+            text = builtText;
+            builtNode = null;
+        }
+        else
+        {
+            stringNode = getMenuFont().getStringNode(text);
+        }
+
+        // If there is a material set, apply it.
+        Material mat = getMenuMaterial();
+
+        if (mat != null)
+        {
+            setMaterial(mat);
+        }
+
+        attachChild(stringNode);
+    }
+
+    /**
+     * Glyph meshes are shared by the whole font: only the label nodes (and
+     * hit boxes, arrows...) are released.
+     */
+    @Override
+    protected void release()
+    {
+        detachAllChildren();
+        stringNode = null;
+        dropBuild();
+    }
+
+    /**
+     * Counts the label nodes, including the text geometries and a text built
+     * but not shown yet; the glyph meshes are shared through the font.
+     */
+    @Override
+    public long getMemoryUsage()
+    {
+        long result = builtNode == null ? 0 : MeshUtils.getMemoryUsage(builtNode);
+        for (Spatial child : getChildren())
+        {
+            result += MeshUtils.getMemoryUsage(child);
+        }
+        return result;
+    }
+
+    @Override
+    public void write(JmeExporter ex) throws IOException
+    {
+        super.write(ex);
+        ex.getCapsule(this).write(getLatestText(), "text", "");
+        ex.getCapsule(this).write(asynchronous, "asynchronous", false);
+    }
+
+    @Override
+    public void read(JmeImporter im) throws IOException
+    {
+        super.read(im);
+        text = im.getCapsule(this).readString("text", "");
+        asynchronous = im.getCapsule(this).readBoolean("asynchronous", false);
+    }
+
+    /**
+     * A label can only be built once it has a font.
+     */
+    @Override
+    protected boolean canRefresh()
+    {
+        return getMenuFont() != null;
+    }
+
+    @Override
+    public float getLocalWidth()
+    {
+        Jme3DFont currentFont = getMenuFont();
+        float result = 0;
+        for (char c : text.toCharArray())
+        {
+            Vector3f glyphSize = currentFont.getGlyphSize(c);
+            result += glyphSize.x * Jme3DFont.spacingRatio;
+        }
+
+        return result;
+    }
+
+    @Override
+    public float getLocalHeight()
+    {
+        Jme3DFont currentFont = getMenuFont();
+        float result = 0;
+        for (char c : text.toCharArray())
+        {
+            Vector3f glyphSize = currentFont.getGlyphSize(c);
+            result = Math.max(result,glyphSize.y);
+        }
+
+        return result;
+    }
+    
+        @Override
+    public float getLocalDepth()
+    {
+        Jme3DFont currentFont = getMenuFont();
+        float result = 0;
+        for (char c : text.toCharArray())
+        {
+            Vector3f glyphSize = currentFont.getGlyphSize(c);
+            result = Math.max(result,glyphSize.z);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,311 @@
+package menu.elements;
+
+import com.jme3.material.Material;
+import com.jme3.math.Transform;
+import com.jme3.renderer.queue.RenderQueue.Bucket;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import menu.utils.Materials;
+import menu.utils.MeshUtils;
+
+/**
+ * Merges the static geometries of a panel's children into one geometry per
+ * material, so that a whole panel renders in a handful of draw calls. The
+ * original geometries are only hidden: they are still used for picking. When
+ * an element is refreshed, moved or removed, only the batches of its
+ * materials are merged again.
+ */
+class MaterialBatches
+{
+    private final Panel panel;
+    private final Node batchNode = new Node("MenuBatches");
+    // One batch per material.
+    private final IdentityHashMap<Material, Batch> batches = new IdentityHashMap<>();
+    // What each batched element contributed, and where it was.
+    private final HashMap<MenuElement, BatchedElement> batchedElements = new HashMap<>();
+    // The elements refreshed, or maybe moved, since the last validation. When
+    // the panel moves, every element is reported: the sets keep that linear.
+    private final Set<MenuElement> refreshedElements = Collections.newSetFromMap(new IdentityHashMap<MenuElement, Boolean>());
+    private final Set<MenuElement> movedElements = Collections.newSetFromMap(new IdentityHashMap<MenuElement, Boolean>());
+
+    /**
+     * A merged geometry, and the elements it is merged from.
+     */
+    private static class Batch
+    {
+        Geometry geometry;
+        ArrayList<MenuElement> elements = new ArrayList<>();
+        boolean dirty = true;
+    }
+
+    /**
+     * The batches an element is part of, its geometries hidden for that, and
+     * its transform at the time.
+     */
+    private static class BatchedElement
+    {
+        Transform transform;
+        ArrayList<Material> materials = new ArrayList<>();
+        ArrayList<Geometry> hiddenGeometries = new ArrayList<>();
+    }
+
+    MaterialBatches(Panel panel)
+    {
+        this.panel = panel;
+        panel.attachChild(batchNode);
+    }
+
+    /**
+     * The element has been refreshed: its geometries have changed.
+     */
+    void elementRefreshed(MenuElement element)
+    {
+        refreshedElements.add(element);
+    }
+
+    /**
+     * The element may have moved. This is also called when the whole panel
+     * moves: the element is then only merged again if it moved in the panel.
+     */
+    void elementMoved(MenuElement element)
+    {
+        movedElements.add(element);
+    }
+
+    /**
+     * The element is no longer part of the panel.
+     */
+    void elementRemoved(MenuElement element)
+    {
+        refreshedElements.remove(element);
+        movedElements.remove(element);
+        forget(element);
+    }
+
+    /**
+     * Merges again the batches affected by the changes since the last time.
+     */
+    void validate()
+    {
+        for (MenuElement element : movedElements)
+        {
+            BatchedElement batched = batchedElements.get(element);
+            if (batched != null && hasMoved(batched.transform, element.getLocalTransform()))
+            {
+                refreshedElements.add(element);
+            }
+        }
+        movedElements.clear();
+
+        for (MenuElement element : refreshedElements)
+        {
+            collect(element);
+        }
+        refreshedElements.clear();
+
+        ArrayList<Material> emptyBatches = null;
+        for (Material material : batches.keySet())
+        {
+            Batch batch = batches.get(material);
+            if (batch.dirty)
+            {
+                merge(material, batch);
+                if (batch.elements.isEmpty())
+                {
+                    if (emptyBatches == null)
+                    {
+                        emptyBatches = new ArrayList<>();
+                    }
+                    emptyBatches.add(material);
+                }
+            }
+        }
+
+        // Drop the batches no element contributes to anymore.
+        if (emptyBatches != null)
+        {
+            for (Material material : emptyBatches)
+            {
+                batches.remove(material);
+            }
+        }
+    }
+
+    /**
+     * Shows the original geometries again, and removes the batches.
+     */
+    void dispose()
+    {
+        for (BatchedElement batched : batchedElements.values())
+        {
+            for (Geometry geometry : batched.hiddenGeometries)
+            {
+                geometry.setCullHint(Spatial.CullHint.Inherit);
+            }
+        }
+        batchedElements.clear();
+        batches.clear();
+        panel.detachChild(batchNode);
+    }
+
+    /**
+     * Returns the memory (in bytes) used by the merged meshes.
+     */
+    long getMemoryUsage()
+    {
+        return MeshUtils.getMemoryUsage(batchNode);
+    }
+
+    /**
+     * Returns the number of merged geometries.
+     */
+    int getBatchCount()
+    {
+        return batchNode.getQuantity();
+    }
+
+    /**
+     * Removes the element from its batches, and shows its geometries again.
+     */
+    private void forget(MenuElement element)
+    {
+        BatchedElement batched = batchedElements.remove(element);
+        if (batched != null)
+        {
+            for (Material material : batched.materials)
+            {
+                Batch batch = batches.get(material);
+                batch.elements.remove(element);
+                batch.dirty = true;
+            }
+            for (Geometry geometry : batched.hiddenGeometries)
+            {
+                geometry.setCullHint(Spatial.CullHint.Inherit);
+            }
+        }
+    }
+
+    /**
+     * Finds (again) the geometries of the element to merge, and hides them.
+     */
+    private void collect(MenuElement element)
+    {
+        forget(element);
+
+        if (element.menuParent != panel || !element.canBatch())
+        {
+            return;
+        }
+
+        BatchedElement batched = new BatchedElement();
+        batched.transform = element.getLocalTransform().clone();
+        collect(element, element, batched);
+        batchedElements.put(element, batched);
+    }
+
+    private void collect(MenuElement element, Spatial spatial, BatchedElement batched)
+    {
+        if (spatial instanceof Geometry)
+        {
+            Geometry geometry = (Geometry) spatial;
+            if (geometry.getMaterial() == Materials.invisibleMaterial)
+            {
+                // Hit boxes are never seen, but still cost a draw call.
+                hide(geometry, batched);
+            }
+            else if (isBatchable(geometry))
+            {
+                Material material = geometry.getMaterial();
+                Batch batch = batches.get(material);
+                if (batch == null)
+                {
+                    batch = new Batch();
+                    batches.put(material, batch);
+                }
+                if (!batched.materials.contains(material))
+                {
+                    batched.materials.add(material);
+                    batch.elements.add(element);
+                }
+                batch.dirty = true;
+                hide(geometry, batched);
+            }
+        }
+        else if (spatial instanceof Node)
+        {
+            for (Spatial child : ((Node) spatial).getChildren())
+            {
+                collect(element, child, batched);
+            }
+        }
+    }
+
+    private static boolean hasMoved(Transform before, Transform now)
+    {
+        return !before.getTranslation().equals(now.getTranslation())
+                || !before.getRotation().equals(now.getRotation())
+                || !before.getScale().equals(now.getScale());
+    }
+
+    /**
+     * Transparent geometries are left alone, as they have to be sorted.
+     */
+    private static boolean isBatchable(Geometry geometry)
+    {
+        return geometry.getMesh() != null && geometry.getMaterial() != null
+                && geometry.getCullHint() != Spatial.CullHint.Always
+                && geometry.getQueueBucket() != Bucket.Transparent;
+    }
+
+    private static void hide(Geometry geometry, BatchedElement batched)
+    {
+        geometry.setCullHint(Spatial.CullHint.Always);
+        batched.hiddenGeometries.add(geometry);
+    }
+
+    /**
+     * Merges again all the geometries of the given material.
+     */
+    private void merge(Material material, Batch batch)
+    {
+        ArrayList<Geometry> geometries = new ArrayList<>();
+        for (MenuElement element : batch.elements)
+        {
+            for (Geometry geometry : batchedElements.get(element).hiddenGeometries)
+            {
+                if (geometry.getMaterial() == material)
+                {
+                    geometries.add(geometry);
+                }
+            }
+        }
+
+        if (geometries.isEmpty())
+        {
+            if (batch.geometry != null)
+            {
+                batchNode.detachChild(batch.geometry);
+            }
+        }
+        else
+        {
+            if (batch.geometry == null)
+            {
+                batch.geometry = new Geometry("MenuBatch", new Mesh());
+                batch.geometry.setMaterial(material);
+            }
+            // The batch node isn't moved in the panel: merge in the panel space.
+            MeshUtils.mergeGeometries(geometries, panel.getWorldTransform().toTransformMatrix(), batch.geometry.getMesh());
+            batch.geometry.updateModelBound();
+            batchNode.attachChild(batch.geometry);
+        }
+        batch.dirty = false;
+    }
+}
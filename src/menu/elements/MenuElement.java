@@ -1,263 +1,819 @@
-package menu.elements;
-
-import com.jme3.material.Material;
-import com.jme3.math.FastMath;
-import com.jme3.math.Vector2f;
-import com.jme3.math.Vector3f;
-import com.jme3.scene.Node;
-import java.util.ArrayList;
-import menu.utils.Jme3DFont;
-
-/**
- * A class describing a menu element (Button, slider, etc...) Some methods can -
- * but not must - be overriden to provide additional behaviours when clicked,
- * dragged, etc.
- *
- */
-public abstract class MenuElement extends Node
-{
-
-    protected Jme3DFont menuFont = null;
-    protected MenuElement menuParent = null;
-    protected Material menuMaterial = null;
-    protected boolean enabled = true;
-
-    /**
-     * Refreshes this element. It sets the material again, actualises labels
-     * text, etc.
-     */
-    abstract protected void refresh();
-
-    /**
-     * The local (i.e, expressed in it's own model space) width of the
-     * component.
-     */
-    abstract public float getLocalWidth();
-
-    /**
-     * The local (i.e, expressed in it's own model space) height of the
-     * component.
-     */
-    abstract public float getLocalHeight();
-
-    /**
-     * The local (i.e, expressed in it's own model space) depth of the
-     * component.
-     */
-    abstract public float getLocalDepth();
-
-    /**
-     * Sets the element size to the given x or y (fraction of the parent
-     * element). For example, a button can be set to occupy 10% of the parent's
-     * space.
-     *
-     * This changes the scale proportions.
-     */
-    public final void setSize(float width, float height)
-    {
-        float xAmount = menuParent.getLocalWidth() * width / getWidth();
-        float yAmount = menuParent.getLocalHeight() * height / getHeight();
-        scale(xAmount,yAmount,1);
-    }
-
-    /**
-     * Sets the element width to the given fraction of the parent element. For
-     * example, a button can be set to occupy 10% of the parent's space.
-     *
-     * Setting the width makes the height change accordingly.
-     */
-    public final void setWidth(float width)
-    {
-        float amount = menuParent.getLocalWidth() * width / getWidth();
-        scale(amount);
-    }
-
-    /**
-     * Sets the element height to the given fraction of the parent element. For
-     * example, a button can be set to occupy 10% of the parent's space.
-     *
-     * Setting the height makes the width change accordingly.
-     */
-    public final void setHeight(float height)
-    {
-        float amount = menuParent.getLocalHeight() * height / getHeight();
-        scale(amount);
-    }
-
-    public void setPosition(Vector2f v)
-    {
-        setLocalTranslation(v.x * menuParent.getLocalWidth(), v.y * menuParent.getLocalHeight(), 0);
-    }
-
-    /**
-     * Returns the elements width, as expressed in it's parent coordinate space.
-     */
-    public final float getWidth()
-    {
-        // return getLocalTransform().transformVector(new Vector3f(getLocalWidth(), 0, 0), null).x;
-        return getLocalWidth() * getLocalScale().x;
-    }
-
-    /**
-     * Returns the elements width, as expressed in it's parent coordinate space.
-     */
-    public final float getHeight()
-    {
-       // return getLocalTransform().transformVector(new Vector3f(0, getLocalHeight(), 0), null).y;
-        return getLocalHeight() * getLocalScale().y;
-    }
-
-    /**
-     * Returns the elements depth, as expressed in it's parent coordinate space.
-     */
-    public final float getDepth()
-    {
-        // return getLocalTransform().transformVector(new Vector3f(0, 0, getLocalHeight()), null).z;
-        return getLocalDepth() * getLocalScale().z;
-    }
-
-    /**
-     * This methods fills the array with every leave in the menu - i.e., finds
-     * non-composite elements such as buttons, iterating over composite elements
-     * like the panels.
-     */
-    protected void findLeaves(ArrayList<MenuElement> candidates)
-    {
-        candidates.add(this);
-    }
-
-    /**
-     * Sets a font to be used by this element - and, in the case of a panel, by
-     * each of its children. If no font is set for this element, it will request
-     * it's parent's; this allows to change the font for a whole branch.
-     */
-    public void setMenuFont(Jme3DFont menuFont)
-    {
-        this.menuFont = menuFont;
-    }
-
-    /**
-     * @return the material affected to this menu element or to its ancestor.
-     */
-    public final Material getMenuMaterial()
-    {
-        if (menuMaterial != null)
-        {
-            return menuMaterial;
-        } else
-        {
-            // If the element itself has no material, return the parent, null if no parent.
-            if (menuParent != null)
-            {
-                return menuParent.getMenuMaterial();
-            } else
-            {
-                return null;
-            }
-        }
-    }
-
-    /**
-     * Processes a click.
-     *
-     * @param pressedOrReleased If true, it's a click; else it's a button
-     * release.
-     */
-    public void processClick(boolean pressedOrReleased, Vector3f cursorPosition)
-    {
-    }
-
-    /**
-     * Not implemented yet.
-     */
-    public void processKey()
-    {
-    }
-
-    /**
-     * Fires when the element is dragged.
-     *
-     * @param cursorPosition The cursor position, given in the local space.
-     */
-    public void processDrag(Vector3f cursorPosition)
-    {
-    }
-
-    /**
-     * Fires when the wheel has been rolled.
-     *
-     * @param step The number (positive or negative) of steps rolled.
-     */
-    public void processWheel(int step)
-    {
-    }
-
-    /**
-     * Fires every logic update. It can be used to move things around, fire
-     * events...
-     *
-     * @param tpf The time passed since the last frame.
-     */
-    public void update(float tpf)
-    {
-    }
-
-    /**
-     * Sets a material to be used by this element - and, in the case of a panel,
-     * by each of its children. If no material is set for this element, it will
-     * request it's parent's; this allows to change the material for a whole
-     * branch.
-     */
-    public void setMenuMaterial(Material menuMaterial)
-    {
-        this.menuMaterial = menuMaterial;
-    }
-
-    /**
-     * @return the font affected to this menu element or to its ancestor.
-     */
-    public Jme3DFont getMenuFont()
-    {
-        if (menuFont != null)
-        {
-            return menuFont;
-        } else
-        {
-            // If the element itself has no material, return the parent, null if no parent.
-            if (menuParent != null)
-            {
-                return menuParent.getMenuFont();
-            } else
-            {
-                return null;
-            }
-        }
-    }
-
-    /**
-     * Returns true if the element is enabled -- e.g., clickable.
-     */
-    public boolean isEnabled()
-    {
-        return enabled;
-    }
-
-    /**
-     * Enables or disables a component. To show that it is disabled, it will
-     * rotate by 45°.
-     */
-    public void setEnabled(boolean enabled)
-    {
-        if (enabled && !this.enabled)
-        {
-            // On enabling again:
-            rotate(0, -FastMath.QUARTER_PI, 0);
-        } else
-        {
-            // On disabling:
-            rotate(0, FastMath.QUARTER_PI, 0);
-        }
-
-        this.enabled = enabled;
-    }
-}
+package menu.elements;
+
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import com.jme3.input.controls.ActionListener;
+import com.jme3.material.Material;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import menu.animations.Animator;
+import menu.utils.Jme3DFont;
+
+/**
+ * A class describing a menu element (Button, slider, etc...) Some methods can -
+ * but not must - be overriden to provide additional behaviours when clicked,
+ * dragged, etc.
+ *
+ */
+public abstract class MenuElement extends Node
+{
+
+    protected Jme3DFont menuFont = null;
+    protected MenuElement menuParent = null;
+    protected Material menuMaterial = null;
+    protected boolean enabled = true;
+    // Only active elements are updated every frame.
+    private boolean active = false;
+    // Invalid elements are refreshed on the next validation.
+    private boolean invalid = false;
+    // The font and material inherited from the ancestors, resolved once. They
+    // hold as long as the resolved version matches the style version.
+    private Jme3DFont resolvedFont = null;
+    private Material resolvedMaterial = null;
+    private int styleVersion = 0;
+    private int resolvedStyleVersion = -1;
+    private ArrayList<MenuListener> menuListeners = new ArrayList<>();
+    private ArrayList<ActionListener> actionListeners = new ArrayList<>();
+    // The value change event queued and not dispatched yet, if any: further
+    // changes only update its value.
+    private MenuEvent pendingValueEvent = null;
+    // A locked element (and its children) ignores input, and can't be picked.
+    private int lockCount = 0;
+
+    /**
+     * The properties that can be written from any thread (see post()).
+     */
+    enum Property
+    {
+        ENABLED, TEXT, VALUES, INDEX
+    };
+    private static final Property properties[] = Property.values();
+    // The values posted for each property and not applied yet (null if
+    // none), and whether the element is queued for them to be applied.
+    private final AtomicReferenceArray<Object> postedValues = new AtomicReferenceArray<>(properties.length);
+    private final AtomicBoolean posted = new AtomicBoolean(false);
+
+    /**
+     * Refreshes this element. It sets the material again, actualises labels
+     * text, etc. It should not be called directly: call invalidate() instead,
+     * so that the element is only refreshed once on the next validation, no
+     * matter how many times it changed in between.
+     */
+    abstract protected void refresh();
+
+    /**
+     * Returns the animator of the root panel of this element, null if it isn't
+     * part of a menu.
+     */
+    public Animator getAnimator()
+    {
+        return menuParent != null ? menuParent.getAnimator() : null;
+    }
+
+    /**
+     * Adds a listener, notified of the events of this element.
+     */
+    public void addMenuListener(MenuListener listener)
+    {
+        menuListeners.add(listener);
+    }
+
+    public void removeMenuListener(MenuListener listener)
+    {
+        menuListeners.remove(listener);
+    }
+
+    /**
+     * Adds an action listener, fired with the element name for each event of
+     * this element (a click, a value change...).
+     */
+    public void addActionListener(ActionListener listener)
+    {
+        actionListeners.add(listener);
+    }
+
+    public void removeActionListener(ActionListener listener)
+    {
+        actionListeners.remove(listener);
+    }
+
+    /**
+     * Fires an action event, e.g. when the element is clicked.
+     */
+    protected void fireAction(Object value)
+    {
+        postEvent(new MenuEvent(MenuEvent.Type.ACTION, this, value));
+    }
+
+    /**
+     * Fires a value change event. If one is still waiting to be dispatched,
+     * it is only updated with the new value.
+     */
+    protected void fireValueChanged(Object value)
+    {
+        if (pendingValueEvent != null)
+        {
+            pendingValueEvent.setValue(value);
+        }
+        else
+        {
+            pendingValueEvent = new MenuEvent(MenuEvent.Type.VALUE_CHANGED, this, value);
+            postEvent(pendingValueEvent);
+        }
+    }
+
+    /**
+     * Returns true if a value change event is still waiting to be dispatched:
+     * its value may then be updated in place.
+     */
+    boolean isValueEventPending()
+    {
+        return pendingValueEvent != null;
+    }
+
+    /**
+     * Queues the event on the root panel. An element outside of any panel
+     * dispatches it right away.
+     */
+    private void postEvent(MenuEvent event)
+    {
+        MenuElement root = this;
+        while (root.menuParent != null)
+        {
+            root = root.menuParent;
+        }
+
+        if (root instanceof Panel)
+        {
+            ((Panel) root).queueEvent(event);
+        }
+        else
+        {
+            dispatchEvent(event, 0);
+        }
+    }
+
+    /**
+     * Notifies the listeners of this element of the event.
+     */
+    void dispatchEvent(MenuEvent event, float tpf)
+    {
+        if (event == pendingValueEvent)
+        {
+            pendingValueEvent = null;
+        }
+
+        for (int i = 0; i < menuListeners.size(); i++)
+        {
+            menuListeners.get(i).onMenuEvent(event);
+        }
+        for (int i = 0; i < actionListeners.size(); i++)
+        {
+            actionListeners.get(i).onAction(name, true, tpf);
+        }
+    }
+
+    /**
+     * Writes a property of this element from any thread, e.g. a worker
+     * computing live data. The write is applied on the render thread, at the
+     * start of the next update of a root panel. If the property is written
+     * again meanwhile, only the last value is applied.
+     */
+    final void post(Property property, Object value)
+    {
+        if (value == null)
+        {
+            throw new NullPointerException();
+        }
+
+        postedValues.set(property.ordinal(), value);
+        if (posted.compareAndSet(false, true))
+        {
+            Panel.queuePosted(this);
+        }
+    }
+
+    /**
+     * Applies the values posted since the last time, on the render thread.
+     */
+    final void applyPosted()
+    {
+        // Clear the flag first: a value posted from now on queues the element
+        // again, so none is lost.
+        posted.set(false);
+        for (int i = 0; i < properties.length; i++)
+        {
+            Object value = postedValues.getAndSet(i, null);
+            if (value != null)
+            {
+                applyProperty(properties[i], value);
+            }
+        }
+    }
+
+    /**
+     * Sets a property posted from another thread.
+     */
+    void applyProperty(Property property, Object value)
+    {
+        if (property == Property.ENABLED)
+        {
+            setEnabled((Boolean) value);
+        }
+    }
+
+    /**
+     * Same as setEnabled(), from any thread (see post()).
+     */
+    public void postEnabled(boolean enabled)
+    {
+        post(Property.ENABLED, enabled);
+    }
+
+    /**
+     * Marks this element as needing a refresh. The refresh happens on the next
+     * validation: on the next update of the root panel, or when validate() is
+     * called explicitly.
+     */
+    public void invalidate()
+    {
+        markInvalid();
+    }
+
+    /**
+     * Flags this element as invalid, and lets its parent know it will have to
+     * validate it.
+     */
+    final void markInvalid()
+    {
+        if (!invalid)
+        {
+            invalid = true;
+            if (menuParent != null)
+            {
+                menuParent.childInvalidated(this);
+            }
+        }
+    }
+
+    /**
+     * Called when a child element becomes invalid. Composite elements (such as
+     * panels) must then validate it on their own validation.
+     */
+    void childInvalidated(MenuElement child)
+    {
+    }
+
+    /**
+     * Returns false if the element has been invalidated and not refreshed yet.
+     */
+    public boolean isValid()
+    {
+        return !invalid;
+    }
+
+    /**
+     * Refreshes the element if it has been invalidated since the last time.
+     */
+    public void validate()
+    {
+        if (invalid && canRefresh())
+        {
+            invalid = false;
+            refresh();
+            if (refreshChangesLayout())
+            {
+                layoutChanged();
+            }
+        }
+    }
+
+    /**
+     * Returns true if refreshing the element changes its layout, i.e. moves or
+     * rebuilds its geometries.
+     */
+    boolean refreshChangesLayout()
+    {
+        return true;
+    }
+
+    /**
+     * Releases the meshes built by this element, to save memory while it isn't
+     * displayed. They are built again on the next refresh.
+     */
+    protected void release()
+    {
+    }
+
+    /**
+     * Returns an estimate of the memory (in bytes) used by the meshes this
+     * element built, i.e. of what release() frees.
+     */
+    public long getMemoryUsage()
+    {
+        return 0;
+    }
+
+    /**
+     * Returns true if the child was built by this element from its own state
+     * (text meshes, hit boxes...), rather than added to it. Such children are
+     * not saved: they are built again after loading.
+     */
+    protected boolean isBuilt(Spatial child)
+    {
+        return !(child instanceof MenuElement);
+    }
+
+    /**
+     * Saves the element with its sub-elements, font and material, but without
+     * what it built: the glyph meshes are saved once with the font, and the
+     * element is refreshed from them after loading, without tessellating.
+     */
+    @Override
+    public void write(JmeExporter ex) throws IOException
+    {
+        ArrayList<Spatial> builtChildren = new ArrayList<>();
+        ArrayList<Integer> builtIndices = new ArrayList<>();
+        for (int i = 0; i < getQuantity(); i++)
+        {
+            if (isBuilt(getChild(i)))
+            {
+                builtChildren.add(getChild(i));
+                builtIndices.add(i);
+            }
+        }
+
+        // Leave the built children out while the node is written.
+        for (Spatial child : builtChildren)
+        {
+            detachChild(child);
+        }
+        try
+        {
+            super.write(ex);
+        }
+        finally
+        {
+            for (int i = 0; i < builtChildren.size(); i++)
+            {
+                attachChildAt(builtChildren.get(i), builtIndices.get(i));
+            }
+        }
+
+        OutputCapsule capsule = ex.getCapsule(this);
+        capsule.write(menuFont, "menuFont", null);
+        capsule.write(menuMaterial, "menuMaterial", null);
+        capsule.write(enabled, "enabled", true);
+    }
+
+    /**
+     * Loads the element. It is refreshed on its next validation.
+     */
+    @Override
+    public void read(JmeImporter im) throws IOException
+    {
+        super.read(im);
+        InputCapsule capsule = im.getCapsule(this);
+        Jme3DFont savedFont = (Jme3DFont) capsule.readSavable("menuFont", null);
+        menuFont = savedFont != null ? savedFont.getSharedFont() : null;
+        menuMaterial = (Material) capsule.readSavable("menuMaterial", null);
+        enabled = capsule.readBoolean("enabled", true);
+        styleChanged();
+        invalid = true;
+    }
+
+    /**
+     * Returns true if everything needed to refresh the element is available
+     * (e.g., a font). Otherwise, the element stays invalid until it is.
+     */
+    protected boolean canRefresh()
+    {
+        return true;
+    }
+
+    /**
+     * The local (i.e, expressed in it's own model space) width of the
+     * component.
+     */
+    abstract public float getLocalWidth();
+
+    /**
+     * The local (i.e, expressed in it's own model space) height of the
+     * component.
+     */
+    abstract public float getLocalHeight();
+
+    /**
+     * The local (i.e, expressed in it's own model space) depth of the
+     * component.
+     */
+    abstract public float getLocalDepth();
+
+    /**
+     * Sets the element size to the given x or y (fraction of the parent
+     * element). For example, a button can be set to occupy 10% of the parent's
+     * space.
+     *
+     * This changes the scale proportions.
+     */
+    public final void setSize(float width, float height)
+    {
+        float xAmount = menuParent.getLocalWidth() * width / getWidth();
+        float yAmount = menuParent.getLocalHeight() * height / getHeight();
+        scale(xAmount,yAmount,1);
+    }
+
+    /**
+     * Sets the element width to the given fraction of the parent element. For
+     * example, a button can be set to occupy 10% of the parent's space.
+     *
+     * Setting the width makes the height change accordingly.
+     */
+    public final void setWidth(float width)
+    {
+        float amount = menuParent.getLocalWidth() * width / getWidth();
+        scale(amount);
+    }
+
+    /**
+     * Sets the element height to the given fraction of the parent element. For
+     * example, a button can be set to occupy 10% of the parent's space.
+     *
+     * Setting the height makes the width change accordingly.
+     */
+    public final void setHeight(float height)
+    {
+        float amount = menuParent.getLocalHeight() * height / getHeight();
+        scale(amount);
+    }
+
+    public void setPosition(Vector2f v)
+    {
+        setLocalTranslation(v.x * menuParent.getLocalWidth(), v.y * menuParent.getLocalHeight(), 0);
+    }
+
+    /**
+     * Returns the elements width, as expressed in it's parent coordinate space.
+     */
+    public final float getWidth()
+    {
+        // return getLocalTransform().transformVector(new Vector3f(getLocalWidth(), 0, 0), null).x;
+        return getLocalWidth() * getLocalScale().x;
+    }
+
+    /**
+     * Returns the elements width, as expressed in it's parent coordinate space.
+     */
+    public final float getHeight()
+    {
+       // return getLocalTransform().transformVector(new Vector3f(0, getLocalHeight(), 0), null).y;
+        return getLocalHeight() * getLocalScale().y;
+    }
+
+    /**
+     * Returns the elements depth, as expressed in it's parent coordinate space.
+     */
+    public final float getDepth()
+    {
+        // return getLocalTransform().transformVector(new Vector3f(0, 0, getLocalHeight()), null).z;
+        return getLocalDepth() * getLocalScale().z;
+    }
+
+    /**
+     * This methods fills the array with every leave in the menu - i.e., finds
+     * non-composite elements such as buttons, iterating over composite elements
+     * like the panels.
+     */
+    protected void findLeaves(ArrayList<MenuElement> candidates)
+    {
+        candidates.add(this);
+    }
+
+    /**
+     * Same as findLeaves, unless the element is locked: then its branch is
+     * skipped.
+     */
+    final void findUnlockedLeaves(ArrayList<MenuElement> candidates)
+    {
+        if (lockCount == 0)
+        {
+            findLeaves(candidates);
+        }
+    }
+
+    /**
+     * Locks this element and its children: they ignore input, and are neither
+     * picked nor focused, e.g. while they move in a transition. Locks are
+     * counted: the element is unlocked once unlock() has been called as many
+     * times.
+     */
+    public void lock()
+    {
+        if (lockCount++ == 0)
+        {
+            // Picking and navigation must forget this branch.
+            layoutChanged();
+        }
+    }
+
+    public void unlock()
+    {
+        if (--lockCount == 0)
+        {
+            layoutChanged();
+        }
+    }
+
+    /**
+     * Returns true if this element, or one of its ancestors, is locked.
+     */
+    public boolean isLocked()
+    {
+        for (MenuElement element = this; element != null; element = element.menuParent)
+        {
+            if (element.lockCount > 0)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets a font to be used by this element - and, in the case of a panel, by
+     * each of its children. If no font is set for this element, it will request
+     * it's parent's; this allows to change the font for a whole branch.
+     */
+    public void setMenuFont(Jme3DFont menuFont)
+    {
+        this.menuFont = menuFont;
+        styleChanged();
+        invalidate();
+    }
+
+    /**
+     * @return the material affected to this menu element or to its ancestor.
+     */
+    public final Material getMenuMaterial()
+    {
+        resolveStyle();
+        return resolvedMaterial;
+    }
+
+    /**
+     * Forgets the resolved font and material of this element - and, in the
+     * case of a panel, of its children. Called when the element's own style,
+     * or one of its ancestors', changes, or when the element changes parent.
+     */
+    void styleChanged()
+    {
+        styleVersion++;
+        // An element that could not be refreshed (e.g. lacking a font) may
+        // now be: have its parent check it again.
+        if (invalid && menuParent != null)
+        {
+            menuParent.childInvalidated(this);
+        }
+    }
+
+    /**
+     * Resolves the inherited font and material, if they changed since the last
+     * time: elements deep in the menu don't walk up their ancestors on each
+     * call.
+     */
+    private void resolveStyle()
+    {
+        if (resolvedStyleVersion != styleVersion)
+        {
+            // If the element itself has no font or material, take the parent's, null if no parent.
+            if (menuFont != null)
+            {
+                resolvedFont = menuFont;
+            }
+            else
+            {
+                resolvedFont = menuParent != null ? menuParent.getMenuFont() : null;
+            }
+
+            if (menuMaterial != null)
+            {
+                resolvedMaterial = menuMaterial;
+            }
+            else
+            {
+                resolvedMaterial = menuParent != null ? menuParent.getMenuMaterial() : null;
+            }
+
+            resolvedStyleVersion = styleVersion;
+        }
+    }
+
+    /**
+     * Processes a click.
+     *
+     * @param pressedOrReleased If true, it's a click; else it's a button
+     * release.
+     * @param cursorPosition The cursor position, given in the local space. The
+     * vector is reused by the panel for the next events: copy it to keep it.
+     */
+    public void processClick(boolean pressedOrReleased, Vector3f cursorPosition)
+    {
+    }
+
+    /**
+     * Fires when the element has the focus and a direction key (or the gamepad
+     * pad) is pressed.
+     *
+     * @return true if the element used the key; false to let the panel move
+     * the focus to the next element in that direction.
+     */
+    public boolean processKey(NavigationGraph.Direction direction)
+    {
+        return false;
+    }
+
+    /**
+     * Fires when the element gains or loses the keyboard focus. Override it to
+     * show which element is focused.
+     */
+    public void processFocus(boolean focused)
+    {
+    }
+
+    /**
+     * Fires when the element is dragged.
+     *
+     * @param cursorPosition The cursor position, given in the local space. The
+     * vector is reused by the panel for the next events: copy it to keep it.
+     */
+    public void processDrag(Vector3f cursorPosition)
+    {
+    }
+
+    /**
+     * Fires when the wheel has been rolled.
+     *
+     * @param step The number (positive or negative) of steps rolled.
+     */
+    public void processWheel(int step)
+    {
+    }
+
+    /**
+     * Fires when the element has the focus and is adjusted from the keyboard
+     * (or the gamepad shoulder buttons). By default, it is as if the wheel was
+     * rolled over it.
+     *
+     * @param step The number (positive or negative) of steps adjusted.
+     */
+    public void processAdjust(int step)
+    {
+        processWheel(step);
+    }
+
+    /**
+     * Fires every logic update, as long as the element is active (see
+     * setActive). It can be used to move things around, fire events...
+     *
+     * @param tpf The time passed since the last frame.
+     */
+    public void update(float tpf)
+    {
+    }
+
+    /**
+     * Marks the element as animated or not. Panels only update their active
+     * elements: an element moving things around in its update method must set
+     * itself active, then inactive again once everything has settled, so that
+     * static menus cost nothing per frame.
+     */
+    protected void setActive(boolean active)
+    {
+        if (active != this.active)
+        {
+            this.active = active;
+
+            // Let the parent know it has to update this element.
+            if (active && menuParent != null)
+            {
+                menuParent.childActivated(this);
+            }
+        }
+    }
+
+    /**
+     * Called when a child element becomes active. Composite elements (such as
+     * panels) must then update it every frame, until it is inactive again.
+     */
+    void childActivated(MenuElement child)
+    {
+    }
+
+    /**
+     * Returns true if the element is animated, i.e. needs to be updated every
+     * frame.
+     */
+    public boolean isActive()
+    {
+        return active;
+    }
+
+    /**
+     * Sets a material to be used by this element - and, in the case of a panel,
+     * by each of its children. If no material is set for this element, it will
+     * request it's parent's; this allows to change the material for a whole
+     * branch.
+     */
+    public void setMenuMaterial(Material menuMaterial)
+    {
+        this.menuMaterial = menuMaterial;
+        styleChanged();
+        invalidate();
+    }
+
+    /**
+     * @return the font affected to this menu element or to its ancestor.
+     */
+    public Jme3DFont getMenuFont()
+    {
+        resolveStyle();
+        return resolvedFont;
+    }
+
+    /**
+     * Notifies the panels above this element that the layout has changed (the
+     * element was moved, rebuilt...), so that what is computed from the
+     * element positions is computed again.
+     */
+    protected void layoutChanged()
+    {
+        if (menuParent != null)
+        {
+            menuParent.childChanged(this);
+        }
+    }
+
+    /**
+     * Called when a child element has changed. By default, the layout of this
+     * element changes too.
+     */
+    void childChanged(MenuElement child)
+    {
+        layoutChanged();
+    }
+
+    /**
+     * Returns true if the geometries of this element can be merged with the
+     * others when its panel is batched, i.e. if they don't move on their own.
+     */
+    protected boolean canBatch()
+    {
+        return true;
+    }
+
+    /**
+     * Each time the element is moved, rotated or scaled, the layout changes.
+     */
+    @Override
+    protected void setTransformRefresh()
+    {
+        super.setTransformRefresh();
+        layoutChanged();
+    }
+
+    /**
+     * Returns true if the element is enabled -- e.g., clickable.
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables a component. To show that it is disabled, it will
+     * rotate by 45°.
+     */
+    public void setEnabled(boolean enabled)
+    {
+        if (enabled && !this.enabled)
+        {
+            // On enabling again:
+            rotate(0, -FastMath.QUARTER_PI, 0);
+        } else
+        {
+            // On disabling:
+            rotate(0, FastMath.QUARTER_PI, 0);
+        }
+
+        this.enabled = enabled;
+    }
+}
@@ -0,0 +1,65 @@
+package menu.elements;
+
+/**
+ * An event fired by a menu element: an action (e.g., a click on a button) or a
+ * change of its value. Events are queued, and the root panel dispatches them
+ * once per frame, before validating the menu.
+ */
+public class MenuEvent
+{
+    public enum Type
+    {
+        // The element has been activated (e.g., clicked).
+        ACTION,
+        // The element value has changed. Repeated changes in the same frame
+        // are dispatched as one event, holding the last value.
+        VALUE_CHANGED
+    };
+    private final Type type;
+    private final MenuElement source;
+    private Object value;
+
+    MenuEvent(Type type, MenuElement source, Object value)
+    {
+        this.type = type;
+        this.source = source;
+        this.value = value;
+    }
+
+    /**
+     * @return the type
+     */
+    public Type getType()
+    {
+        return type;
+    }
+
+    /**
+     * @return the element which fired the event.
+     */
+    public MenuElement getSource()
+    {
+        return source;
+    }
+
+    /**
+     * @return the payload of the event: the new value for a value change
+     * (e.g., the slider values, the chosen value), or what has been activated.
+     * May be null.
+     */
+    public Object getValue()
+    {
+        return value;
+    }
+
+    void setValue(Object value)
+    {
+        this.value = value;
+    }
+
+    @Override
+    public String toString()
+    {
+        return type + " from " + source.getName() + ": " + value;
+    }
+}
@@ -0,0 +1,12 @@
+package menu.elements;
+
+/**
+ * Listens to the events of a menu element.
+ */
+public interface MenuListener
+{
+    /**
+     * Called once per event, during the update of the root panel.
+     */
+    public void onMenuEvent(MenuEvent event);
+}
@@ -1,249 +1,400 @@
-package menu.elements;
-
-import com.jme3.input.controls.ActionListener;
-import com.jme3.material.Material;
-import com.jme3.math.ColorRGBA;
-import com.jme3.math.Vector3f;
-import com.jme3.renderer.queue.RenderQueue.Bucket;
-import com.jme3.scene.Geometry;
-import com.jme3.scene.shape.Box;
-import java.awt.Color;
-import java.util.ArrayList;
-import java.util.Map;
-import java.util.TreeMap;
-import menu.utils.Materials;
-
-/**
- * A N-Slider is a slider that allows to adjust N values. Your usual slider is a
- * 1-Slider.
- */
-public class NSlider extends MenuElement
-{
-    private ArrayList<ActionListener> actionListeners = new ArrayList<>();
-    private static final float minValue = 0.05f;
-    private static final float boxSize = 0.5f;
-    private int n = 0;
-    private int draggedValue = -1;
-    private float values[];
-    private Box boxes[];
-    // A slider is 1.5f units long by default.
-    private static final float baseLength = 1.5f;
-    // A (lazy loaded) map of material lists.
-    private static Map<Integer, Material[]> materials = new TreeMap<>();
-
-    public NSlider(int n)
-    {
-        // First off, Check if the selected list of materials is defined.
-        if (!materials.containsKey(n))
-        {
-            initMaterials(n);
-        }
-
-        // Set a material as used so that the panel won't override it.
-        //setMaterial(materials.get(n)[0]);
-
-        this.n = n;
-        // N-1 values only. If you have two boxes, you only get one value.
-        values = new float[n];
-        boxes = new Box[n + 1];
-
-
-        for (int i = 0; i < n; i++)
-        {
-            // Default value: (i+1)/n for each.
-            values[i] = (i + 1f) / (n + 1);
-        }
-
-        for (int i = 0; i < (n + 1); i++)
-        {
-            // Create the N boxes.
-            boxes[i] = new Box(1, 1, 1);
-
-            // Attach the box
-            Geometry geometry = new Geometry();
-            geometry.setMesh(boxes[i]);
-
-            // Set the relevant material
-            geometry.setMaterial(materials.get(n)[i]);
-
-            // Objects with transparency need to be in the render bucket for transparent objects:
-            geometry.setQueueBucket(Bucket.Transparent);
-
-            attachChild(geometry);
-        }
-
-        refresh();
-
-        setName("Slider");
-    }
-
-    public void addActionListener(ActionListener listener)
-    {
-        actionListeners.add(listener);
-    }
-
-    @Override
-    public void setMaterial(Material mat)
-    {
-        // Can't be changed.
-    }
-
-    /** Sets the currently dragged value to the new value. */
-    private void setDraggedValue(float newValue)
-    {
-        // Set the dragged value to the cursor current position (if possible).
-        float previousValue = draggedValue == 0 ? 0f : getValues()[draggedValue - 1];
-        float nextValue = draggedValue == (n - 1) ? 1f : getValues()[draggedValue + 1];
-
-        // If the new value is "too close" to the adjacent value, snap it to the edge.
-        if (newValue - previousValue > minValue)
-        {
-            if (nextValue - newValue > minValue)
-            {
-                values[draggedValue] = newValue;
-            }
-            else
-            {
-                values[draggedValue] = nextValue - minValue;
-            }
-        }
-        else
-        {
-            values[draggedValue] = previousValue + minValue;
-        }
-
-        // Refresh the boxes display.
-        refresh();
-
-        // Fire the listeners.
-        for (ActionListener listener : actionListeners)
-        {
-            listener.onAction(name, true, queueDistance);
-        }
-    }
-
-    @Override
-    public void processClick(boolean pressedOrReleased, Vector3f cursorPosition)
-    {
-        if (pressedOrReleased)
-        {
-            // Get the local X coord of the pointer.
-            // First, clamp the value to [0,1].
-            float value = cursorPosition.x / baseLength;
-            value = Math.min(value, 1f);
-            value = Math.max(value, 0f);
-
-
-            // Mark as "dragged" the relevant value.
-            float distance = 10f;
-            for (int i = 0; i < n; i++)
-            {
-                float currentDistance = Math.abs(getValues()[i] - value);
-                if (currentDistance < distance)
-                {
-                    distance = currentDistance;
-                    draggedValue = i;
-                }
-            }
-
-            // Immediately set the value clicked, if possible.
-            setDraggedValue(value);
-        }
-        else
-        {
-            // "Release" the dragged value
-            // draggedValue = -1;
-        }
-
-    }
-
-    @Override
-    public void processDrag(Vector3f cursorPosition)
-    {
-        super.processDrag(cursorPosition);
-
-        if (draggedValue != -1)
-        {
-            // First, clamp the value to [0,1].
-            float value = cursorPosition.x / baseLength;
-            value = Math.min(value, 1f);
-            value = Math.max(value, 0f);
-            setDraggedValue(value);
-        }
-    }
-
-    @Override
-    public void processWheel(int step)
-    {
-        if (draggedValue != -1)
-        {
-            setDraggedValue(values[draggedValue] + step * 0.05f);
-        }
-    }
-
-    /**
-     * Refreshes the box positions according to the selected values.
-     */
-    @Override
-    protected void refresh()
-    {
-        // First Box:
-        boxes[0].updateGeometry(new Vector3f(0f, 0f, 0f), new Vector3f(baseLength * getValues()[0], boxSize, boxSize));
-
-        // Middle Boxes:
-        for (int i = 0; i < n - 1; i++)
-        {
-            boxes[i + 1].updateGeometry(new Vector3f(baseLength * getValues()[i], 0f, 0f), new Vector3f(baseLength * getValues()[i + 1], boxSize, boxSize));
-        }
-
-        // Last Box:
-        boxes[n].updateGeometry(new Vector3f(baseLength * getValues()[n - 1], 0f, 0f), new Vector3f(baseLength, boxSize,boxSize));
-
-    }
-
-    /**
-     * In order to color each box in a bright color, make a set of "rainbow"
-     * transparent materials.
-     */
-    private static void initMaterials(int n)
-    {
-        Material newMaterials[] = new Material[n+1]; 
-
-        for (int i = 0; i < n + 1; i++)
-        {
-            newMaterials[i] = Materials.transparentMaterial.clone();
-            // Use AWT color to convert from convenient HSB to RGB.
-            Color awtColor = new Color(Color.HSBtoRGB(i * 1f / (n + 1), 0.8f, 1f));
-            ColorRGBA color = new ColorRGBA(awtColor.getRed() * 1f / 255, awtColor.getGreen() * 1f / 255, awtColor.getBlue() * 1f / 255, 0.7f);
-            newMaterials[i].setColor("Color", color);
-        }
-        
-        materials.put(n, newMaterials);
-    }
-
-    /**
-     * @return the values
-     */
-    public float[] getValues()
-    {
-        return values;
-    }
-
-    @Override
-    public float getLocalWidth()
-    {
-        return baseLength;
-    }
-
-    @Override
-    public float getLocalHeight()
-    {
-        return boxSize;
-    }
-
-    @Override
-    public float getLocalDepth()
-    {
-        return boxSize;
-    }
-}
+package menu.elements;
+
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import com.jme3.material.Material;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.queue.RenderQueue.Bucket;
+import com.jme3.scene.Geometry;
+import java.io.IOException;
+import java.util.Arrays;
+import menu.utils.Materials;
+import menu.utils.MeshUtils;
+
+/**
+ * A N-Slider is a slider that allows to adjust N values. Your usual slider is a
+ * 1-Slider. Its segments are unit boxes from the shared palette, stretched by
+ * their local transform: moving a value only moves and scales the two segments
+ * around it, and all the segments of all the sliders share one material.
+ */
+public class NSlider extends MenuElement
+{
+    private static final float minValue = 0.05f;
+    private static final float boxSize = 0.5f;
+    private int n = 0;
+    private int draggedValue = -1;
+    private float values[];
+    // The copy of the values given to the last value change event.
+    private float firedValues[];
+    private Geometry segments[];
+    // The segments to place again on the next refresh.
+    private int dirtyFrom = 0;
+    private int dirtyTo = 0;
+    // A slider is 1.5f units long by default.
+    private static final float baseLength = 1.5f;
+
+    public NSlider(int n)
+    {
+        this.n = n;
+        // N-1 values only. If you have two boxes, you only get one value.
+        values = new float[n];
+
+        for (int i = 0; i < n; i++)
+        {
+            // Default value: (i+1)/n for each.
+            values[i] = (i + 1f) / (n + 1);
+        }
+
+        createSegments();
+        invalidate();
+
+        setName("Slider");
+    }
+
+    /**
+     * Only used when loading.
+     */
+    public NSlider()
+    {
+    }
+
+    private void createSegments()
+    {
+        segments = new Geometry[n + 1];
+        for (int i = 0; i < (n + 1); i++)
+        {
+            // Create the N boxes, in "rainbow" colors: spread them over the
+            // palette, or go round it if there are more boxes than colors.
+            int color = n + 1 <= Materials.paletteSize ? i * Materials.paletteSize / (n + 1) : i % Materials.paletteSize;
+            Geometry geometry = new Geometry();
+            geometry.setMesh(MeshUtils.getPaletteBox(color));
+            segments[i] = geometry;
+
+            // All the segments share the palette material.
+            geometry.setMaterial(Materials.paletteMaterial);
+
+            // Objects with transparency need to be in the render bucket for transparent objects:
+            geometry.setQueueBucket(Bucket.Transparent);
+
+            attachChild(geometry);
+        }
+    }
+
+    /**
+     * Saves the values. The segments are created again when loading.
+     */
+    @Override
+    public void write(JmeExporter ex) throws IOException
+    {
+        super.write(ex);
+        OutputCapsule capsule = ex.getCapsule(this);
+        capsule.write(n, "n", 0);
+        capsule.write(values, "values", null);
+    }
+
+    @Override
+    public void read(JmeImporter im) throws IOException
+    {
+        super.read(im);
+        InputCapsule capsule = im.getCapsule(this);
+        n = capsule.readInt("n", 0);
+        values = capsule.readFloatArray("values", new float[n]);
+        createSegments();
+        setDirty(0, n);
+    }
+
+    @Override
+    public void setMaterial(Material mat)
+    {
+        // Can't be changed.
+    }
+
+    /** Sets the currently dragged value to the new value. */
+    private void setDraggedValue(float newValue)
+    {
+        // Set the dragged value to the cursor current position (if possible).
+        float previousValue = draggedValue == 0 ? 0f : getValues()[draggedValue - 1];
+        float nextValue = draggedValue == (n - 1) ? 1f : getValues()[draggedValue + 1];
+
+        // If the new value is "too close" to the adjacent value, snap it to the edge.
+        if (newValue - previousValue > minValue)
+        {
+            if (nextValue - newValue > minValue)
+            {
+                values[draggedValue] = newValue;
+            }
+            else
+            {
+                values[draggedValue] = nextValue - minValue;
+            }
+        }
+        else
+        {
+            values[draggedValue] = previousValue + minValue;
+        }
+
+        // Refresh the boxes display (once, whatever the number of drag events),
+        // only the two around the value.
+        setDirty(draggedValue, draggedValue + 1);
+        markInvalid();
+
+        // Let the listeners know, once per frame.
+        fireValuesChanged();
+    }
+
+    /**
+     * Fires a value change event with a copy of the values, that listeners
+     * may keep. While the event waits to be dispatched, its copy is updated.
+     */
+    private void fireValuesChanged()
+    {
+        if (firedValues != null && isValueEventPending())
+        {
+            System.arraycopy(values, 0, firedValues, 0, n);
+        }
+        else
+        {
+            firedValues = values.clone();
+        }
+        fireValueChanged(firedValues);
+    }
+
+    @Override
+    public void processClick(boolean pressedOrReleased, Vector3f cursorPosition)
+    {
+        if (pressedOrReleased)
+        {
+            // Get the local X coord of the pointer.
+            // First, clamp the value to [0,1].
+            float value = cursorPosition.x / baseLength;
+            value = Math.min(value, 1f);
+            value = Math.max(value, 0f);
+
+
+            // Mark as "dragged" the relevant value.
+            draggedValue = getNearestValue(value);
+
+            // Immediately set the value clicked, if possible.
+            setDraggedValue(value);
+        }
+        else
+        {
+            // "Release" the dragged value
+            // draggedValue = -1;
+        }
+
+    }
+
+    @Override
+    public void processDrag(Vector3f cursorPosition)
+    {
+        super.processDrag(cursorPosition);
+
+        if (draggedValue != -1)
+        {
+            // First, clamp the value to [0,1].
+            float value = cursorPosition.x / baseLength;
+            value = Math.min(value, 1f);
+            value = Math.max(value, 0f);
+            setDraggedValue(value);
+        }
+    }
+
+    @Override
+    public void processWheel(int step)
+    {
+        if (draggedValue != -1)
+        {
+            setDraggedValue(values[draggedValue] + step * 0.05f);
+        }
+    }
+
+    @Override
+    public void processAdjust(int step)
+    {
+        // When adjusted from the keyboard, no value may have been clicked yet:
+        // adjust the first one.
+        if (draggedValue == -1)
+        {
+            draggedValue = 0;
+        }
+        processWheel(step);
+    }
+
+    /**
+     * Returns the index of the value closest to the given one. The values are
+     * sorted, so a binary search finds it.
+     */
+    private int getNearestValue(float value)
+    {
+        int index = Arrays.binarySearch(values, value);
+        if (index >= 0)
+        {
+            return index;
+        }
+
+        // Not found: compare the values on either side of the insertion point.
+        int next = -index - 1;
+        if (next == n)
+        {
+            return n - 1;
+        }
+        if (next == 0 || values[next] - value < value - values[next - 1])
+        {
+            return next;
+        }
+        return next - 1;
+    }
+
+    /**
+     * Adds the given segments to the ones to place on the next refresh.
+     */
+    private void setDirty(int from, int to)
+    {
+        if (dirtyFrom > dirtyTo)
+        {
+            dirtyFrom = from;
+            dirtyTo = to;
+        }
+        else
+        {
+            dirtyFrom = Math.min(dirtyFrom, from);
+            dirtyTo = Math.max(dirtyTo, to);
+        }
+    }
+
+    /**
+     * Invalidating the slider places all its segments again.
+     */
+    @Override
+    public void invalidate()
+    {
+        setDirty(0, n);
+        super.invalidate();
+    }
+
+    /**
+     * Moves and stretches the segments whose values changed. Segment i spans
+     * from value i - 1 (or 0) to value i (or 1).
+     */
+    @Override
+    protected void refresh()
+    {
+        // Released while hibernating: create the segments again.
+        if (segments == null)
+        {
+            createSegments();
+            setDirty(0, n);
+        }
+
+        for (int i = dirtyFrom; i <= dirtyTo; i++)
+        {
+            float start = i == 0 ? 0f : values[i - 1];
+            float end = i == n ? 1f : values[i];
+            segments[i].setLocalTranslation(baseLength * start, 0f, 0f);
+            segments[i].setLocalScale(baseLength * (end - start), boxSize, boxSize);
+        }
+
+        // Nothing left to place.
+        dirtyFrom = 1;
+        dirtyTo = 0;
+    }
+
+    /**
+     * Drops the segments, created again on the next refresh. Their meshes are
+     * shared: only the geometries are freed.
+     */
+    @Override
+    protected void release()
+    {
+        if (segments != null)
+        {
+            for (Geometry segment : segments)
+            {
+                detachChild(segment);
+            }
+            segments = null;
+        }
+    }
+
+    @Override
+    public long getMemoryUsage()
+    {
+        long result = 0;
+        if (segments != null)
+        {
+            for (Geometry segment : segments)
+            {
+                result += MeshUtils.getMemoryUsage(segment);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the values
+     */
+    public float[] getValues()
+    {
+        return values;
+    }
+
+    /**
+     * Sets the values (n increasing values, from 0 to 1), and fires a value
+     * change event.
+     */
+    public void setValues(float... values)
+    {
+        if (values.length != n)
+        {
+            throw new IllegalArgumentException("The slider has " + n + " values.");
+        }
+
+        System.arraycopy(values, 0, this.values, 0, n);
+        setDirty(0, n);
+        markInvalid();
+        fireValuesChanged();
+    }
+
+    /**
+     * Same as setValues(), from any thread (see MenuElement.post()). The
+     * values are copied.
+     */
+    public void postValues(float... values)
+    {
+        post(Property.VALUES, values.clone());
+    }
+
+    @Override
+    void applyProperty(Property property, Object value)
+    {
+        if (property == Property.VALUES)
+        {
+            setValues((float[]) value);
+        }
+        else
+        {
+            super.applyProperty(property, value);
+        }
+    }
+
+    @Override
+    public float getLocalWidth()
+    {
+        return baseLength;
+    }
+
+    @Override
+    public float getLocalHeight()
+    {
+        return boxSize;
+    }
+
+    @Override
+    public float getLocalDepth()
+    {
+        return boxSize;
+    }
+}
@@ -0,0 +1,159 @@
+package menu.elements;
+
+import com.jme3.math.Vector3f;
+import java.util.ArrayList;
+
+/**
+ * A navigation graph links every leaf of a panel to its closest neighbour in
+ * each direction, so that the focus can be moved with a keyboard or a gamepad
+ * without casting any ray. It is computed once from the element positions,
+ * and only computed again when the layout changes.
+ */
+public class NavigationGraph
+{
+    public enum Direction
+    {
+        LEFT, RIGHT, UP, DOWN
+    };
+    // Elements sitting off the direction axis are penalized by this factor.
+    private static final float crossAxisWeight = 2f;
+    private ArrayList<MenuElement> elements = new ArrayList<>();
+    // The center of each element, in the panel space (x, y pairs).
+    private float centers[] = new float[0];
+    // The neighbour indices of each element, 4 per element, -1 if none.
+    private int neighbours[] = new int[0];
+    // The panel scene version the graph was computed for.
+    private long version = -1;
+
+    /**
+     * Computes the graph again from the leaves of the given panel, if its
+     * scene version changed since the last time.
+     */
+    public void validate(Panel panel)
+    {
+        if (version == panel.getSceneVersion())
+        {
+            return;
+        }
+
+        elements.clear();
+        panel.findLeaves(elements);
+        int count = elements.size();
+        centers = new float[count * 2];
+        neighbours = new int[count * 4];
+
+        // First, express the center of each element in the panel space.
+        Vector3f center = new Vector3f();
+        for (int i = 0; i < count; i++)
+        {
+            MenuElement element = elements.get(i);
+            center.set(element.getLocalWidth() / 2, element.getLocalHeight() / 2, 0);
+            element.localToWorld(center, center);
+            panel.worldToLocal(center, center);
+            centers[2 * i] = center.x;
+            centers[2 * i + 1] = center.y;
+        }
+
+        // Then find the best neighbour in each direction.
+        for (int i = 0; i < count; i++)
+        {
+            for (Direction direction : Direction.values())
+            {
+                neighbours[4 * i + direction.ordinal()] = findNeighbour(i, direction);
+            }
+        }
+
+        version = panel.getSceneVersion();
+    }
+
+    /**
+     * Returns the index of the closest element in the given direction, or -1.
+     */
+    private int findNeighbour(int from, Direction direction)
+    {
+        int result = -1;
+        float bestScore = Float.MAX_VALUE;
+        for (int j = 0; j < elements.size(); j++)
+        {
+            if (j == from)
+            {
+                continue;
+            }
+
+            float dx = centers[2 * j] - centers[2 * from];
+            float dy = centers[2 * j + 1] - centers[2 * from + 1];
+            // Distance along the direction, and away from it.
+            float along, across;
+            switch (direction)
+            {
+            case LEFT:
+                along = -dx;
+                across = Math.abs(dy);
+                break;
+            case RIGHT:
+                along = dx;
+                across = Math.abs(dy);
+                break;
+            case DOWN:
+                along = -dy;
+                across = Math.abs(dx);
+                break;
+            default:
+                along = dy;
+                across = Math.abs(dx);
+            }
+
+            // Only consider elements that are actually in that direction.
+            if (along > 0.0001f)
+            {
+                float score = along + crossAxisWeight * across;
+                if (score < bestScore)
+                {
+                    bestScore = score;
+                    result = j;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the neighbour of the given element in the given direction, or
+     * null if there is none.
+     */
+    public MenuElement getNeighbour(MenuElement element, Direction direction)
+    {
+        int index = elements.indexOf(element);
+        if (index == -1)
+        {
+            return null;
+        }
+
+        int neighbour = neighbours[4 * index + direction.ordinal()];
+        return neighbour == -1 ? null : elements.get(neighbour);
+    }
+
+    /**
+     * Returns true if the element is part of the graph.
+     */
+    public boolean contains(MenuElement element)
+    {
+        return elements.contains(element);
+    }
+
+    /**
+     * Returns the element to focus first: the top-left one.
+     */
+    public MenuElement getFirst()
+    {
+        int result = -1;
+        for (int i = 0; i < elements.size(); i++)
+        {
+            if (result == -1 || centers[2 * i + 1] - centers[2 * i] > centers[2 * result + 1] - centers[2 * result])
+            {
+                result = i;
+            }
+        }
+        return result == -1 ? null : elements.get(result);
+    }
+}
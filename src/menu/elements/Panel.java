@@ -1,554 +1,1467 @@
-package menu.elements;
-
-import com.jme3.app.Application;
-import com.jme3.app.SimpleApplication;
-import com.jme3.collision.CollisionResults;
-import com.jme3.input.InputManager;
-import com.jme3.input.KeyInput;
-import com.jme3.input.MouseInput;
-import com.jme3.input.controls.ActionListener;
-import com.jme3.input.controls.AnalogListener;
-import com.jme3.input.controls.KeyTrigger;
-import com.jme3.input.controls.MouseAxisTrigger;
-import com.jme3.input.controls.MouseButtonTrigger;
-import com.jme3.material.Material;
-import com.jme3.math.Ray;
-import com.jme3.math.Vector2f;
-import com.jme3.math.Vector3f;
-import com.jme3.renderer.Camera;
-import com.jme3.scene.Geometry;
-import com.jme3.scene.Node;
-import com.jme3.scene.shape.Quad;
-import java.util.ArrayList;
-import menu.transitions.Transition;
-import menu.utils.Materials;
-
-/**
- * The menu panel is the root of a clickable 3D menu. Add menu elements to it,
- * and register the inputListener, you're ready to roll. To allow a composite
- * pattern, a panel is also a menuElement. Thus, a Panel can contain other
- * panels.
- */
-public class Panel extends MenuElement
-{
-    // The menu prefix is appended to events strings
-    public static String menuPrefix = "MGC";
-      private Vector2f size = new Vector2f();
-    
-    private InputListener inputListener = null;
-    private ArrayList<MenuElement> menuElements = new ArrayList<>();
-    private ArrayList<Transition> transitions = new ArrayList<>();
-    private MenuElement clickedElement = null;
-    private Application application = null;
-  
-
-    protected Panel()
-    {
-    }
-
-    public Panel(Camera camera, Node parent, float distance)
-    {
-        initView(camera, parent, distance);
-    }
-
-    public void debug(SimpleApplication app)
-    {
-        Quad quad = new Quad(getLocalWidth(), getLocalHeight());
-        Geometry geo = new Geometry("Box", quad);
-
-        geo.setMaterial(Materials.transparentMaterial);
-
-        this.attachChild(geo);
-        geo.setLocalTranslation(0, 0, 0);
-
-        app.getFlyByCamera().setEnabled(true);
-        app.getInputManager().setCursorVisible(false);
-    }
-
-    /**
-     * This method creates a subpanel of a parent panel.
-     *
-     * @param parent The parent panel that will contain this one.
-     * @param position The position of the leftmost, bottom corner of the
-     * subpanel. It is expressed in the parent's referential (x [0,1], y
-     * [0,1]).
-     * @param size The proportion of the parent's space to occupy. (x [0,1], y
-     * [0,1]).
-     */
-    public Panel createSubPanel(Vector2f position, Vector2f size)
-    {
-        Panel result = new Panel();
-        
-        result.setLocalTranslation(position.x * this.size.x, position.y * this.size.y, 0);
-        result.size.set(size.x * this.size.x, size.y * this.size.y);
-        
-        return result;
-    }
-
-    /**
-     * This method will set a panel from a camera and a distance, so that the
-     * panel surface will match the camera's field of view, and will be located
-     * at the given distance from the camera.
-     */
-    public final void initView(Camera camera, Node parent, float distance)
-    {
-        // Compute the screen lower left position
-        // Find the location of the corner of the screen, at near frustum.
-        Vector3f lowerLeft = camera.getWorldCoordinates(new Vector2f(0, 0), 0);
-        // Get vector from the camera to that point
-        Vector3f viewVector = lowerLeft.subtract(camera.getLocation());
-        // Stretch it to the right length
-        viewVector.multLocal(distance / viewVector.length());
-        lowerLeft = camera.getLocation().add(viewVector);
-
-        // Retrieve zPos for later.
-        float zPos = camera.getScreenCoordinates(lowerLeft).z;
-        // Attach the node to the right place.
-        setLocalTranslation(parent.worldToLocal(lowerLeft, null));
-
-        Vector3f xAxis = camera.getWorldCoordinates(new Vector2f(camera.getWidth(), 0), zPos).subtractLocal(lowerLeft);
-        Vector3f yAxis = camera.getWorldCoordinates(new Vector2f(0, camera.getHeight()), zPos).subtractLocal(lowerLeft);
-        // Compute the "up" and "right" extents (x and y in local space) that
-        // will define the panel's size to match the screen.
-        // Eventhough the panel isn't attached yet, we already have the
-        // direction (x and y in the panel's local space) and the length is the
-        // same as expressed in the root node, as long as there is no scale 
-        // applied to the panel.
-        size.x = xAxis.length();
-        size.y = yAxis.length();
-
-        // Finally, orient the screen toward the camera
-        lookAt(lowerLeft.add(xAxis.cross(yAxis)), yAxis);
-    }
-
-    /**
-     * Registers the menu events (clicks, mouse moves...) in the inputListener.
-     * Hooks the menu node into the input manager. Do it once and for all.
-     */
-    public void register(Application application)
-    {
-        // (Re-)add the bindings.
-        InputManager inputManager = application.getInputManager();
-        // Mouse axes.
-        inputManager.addMapping(menuPrefix + "MouseRight", new MouseAxisTrigger(MouseInput.AXIS_X, false));
-        inputManager.addMapping(menuPrefix + "MouseLeft", new MouseAxisTrigger(MouseInput.AXIS_X, true));
-        inputManager.addMapping(menuPrefix + "MouseUp", new MouseAxisTrigger(MouseInput.AXIS_Y, false));
-        inputManager.addMapping(menuPrefix + "MouseDown", new MouseAxisTrigger(MouseInput.AXIS_Y, true));
-        inputManager.addMapping(menuPrefix + "MouseWheelUp", new MouseAxisTrigger(MouseInput.AXIS_WHEEL, false));
-        inputManager.addMapping(menuPrefix + "MouseWheelDown", new MouseAxisTrigger(MouseInput.AXIS_WHEEL, true));
-        // Mouse buttons.
-        inputManager.addMapping(menuPrefix + "LButton", new MouseButtonTrigger(MouseInput.BUTTON_LEFT));
-        inputManager.addMapping(menuPrefix + "RButton", new MouseButtonTrigger(MouseInput.BUTTON_RIGHT));
-        // Keyboard.
-        inputManager.addMapping(menuPrefix + "LCtrl", new KeyTrigger(KeyInput.KEY_LCONTROL));
-        inputManager.addMapping(menuPrefix + "LShift", new KeyTrigger(KeyInput.KEY_LSHIFT));
-
-        // Init materials
-        Materials.initMaterials(application.getAssetManager());
-
-        // Register the listeners to this panel.
-        application.getInputManager().addListener(this.inputListener, menuPrefix + "MouseLeft", menuPrefix + "MouseRight",
-                menuPrefix + "MouseDown", menuPrefix + "MouseUp", menuPrefix + "MouseWheelUp", menuPrefix + "MouseWheelDown", menuPrefix + "LButton", menuPrefix + "RButton", menuPrefix + "LCtrl", menuPrefix + "LShift");
-
-        // Save the application to access various resources.
-        this.application = application;
-    }
-
-    /**
-     * Removes alll hooks. The menus won't work after that.
-     */
-    public void unRegister(InputManager inputManager)
-    {
-        application.getInputManager().removeListener(inputListener);
-        application = null;
-    }
-
-    /**
-     * Processes a click - if it's either just been pressed or just released.
-     */
-    public void processClick(boolean pressedOrReleased)
-    {
-        /* First of all, only process input if there's no transition running. */
-        if (transitions.isEmpty())
-        {
-            // If it's a press:
-            if (pressedOrReleased)
-            {
-                Vector3f contactPoint = new Vector3f();
-                Vector3f contactNormal = new Vector3f();
-
-                // First create a list of all leaf menu elements, to avoid calling 
-                // this method on subpanels and raytracing several times.
-                ArrayList<MenuElement> candidates = new ArrayList<>();
-                findLeaves(candidates);
-
-                // Then cast a ray to find which element is clicked - if there is one.
-                MenuElement nodeAimed = (MenuElement) getNodeClicked(application.getCamera(), contactPoint, contactNormal, candidates.toArray(new MenuElement[0]));
-
-                // If something was clicked, fire its process method.
-                if (nodeAimed != null)
-                {
-                    nodeAimed.worldToLocal(contactPoint, contactPoint);
-                    nodeAimed.processClick(pressedOrReleased, contactPoint);
-                }
-                // Also store the node as the currently focused one.
-                clickedElement = nodeAimed;
-            }
-            else
-            {
-                // If the button has been released:
-                if (clickedElement != null)
-                {
-                    clickedElement.processClick(pressedOrReleased, null);
-                    clickedElement = null;
-                }
-            }
-        }
-    }
-
-    /**
-     * Processes a mouse drag. For locating the mouse during those events, a ray
-     * cast won't do, because the mouse can be out of any component.
-     */
-    public void processDrag()
-    {
-        /* First of all, only process input if there's no transition running. */
-        if (transitions.isEmpty() && clickedElement != null)
-        {
-            clickedElement.processDrag(getMousePosition(clickedElement));
-        }
-    }
-
-    /**
-     * Processes a mouse wheel turn.
-     */
-    @Override
-    public void processWheel(int step)
-    {
-        /* First of all, only process input if there's no transition running. */
-        if (transitions.isEmpty())
-        {
-            Vector3f contactPoint = new Vector3f();
-            Vector3f contactNormal = new Vector3f();
-
-            // First create a list of all leaf menu elements, to avoid calling 
-            // this method on subpanels and raytracing several times.
-            ArrayList<MenuElement> candidates = new ArrayList<>();
-            findLeaves(candidates);
-
-            // Then cast a ray to find which element is clicked - if there is one.
-            MenuElement nodeAimed = (MenuElement) getNodeClicked(application.getCamera(), contactPoint, contactNormal, candidates.toArray(new MenuElement[0]));
-
-            // If something was aimed, fire its process method.
-            if (nodeAimed != null)
-            {
-                nodeAimed.processWheel(step);
-            }
-        }
-    }
-
-    /**
-     * On updating, update all children and process all transitions.
-     */
-    @Override
-    public void update(float tpf)
-    {
-        // A list of transitions to remove if they are over.
-        ArrayList<Transition> toRemove = null;
-        // For each transition:
-        for (Transition transition : transitions)
-        {
-            // Update the transition.
-            transition.update(tpf);
-
-            // If the transition is over, mark it to remove.
-            if (transition.isOver())
-            {
-                if (toRemove == null)
-                {
-                    toRemove = new ArrayList<>();
-                }
-                toRemove.add(transition);
-            }
-        }
-
-        // Remove all finished transitions
-        if (toRemove != null)
-        {
-            for (Transition t : toRemove)
-            {
-                // Finalize the transition.
-                t.finish();
-                // Also remove the source panel, now fully replaced by the destination.
-                remove(t.getSource());
-            }
-
-            transitions.removeAll(toRemove);
-        }
-
-        // Finally, update all elements.
-        for (MenuElement e : menuElements)
-        {
-            e.update(tpf);
-        }
-    }
-
-    public void addTransition(Transition transition)
-    {
-        // First add the destination panel to the menu.
-        add(transition.getDestination());
-        // Init the transistion.
-        transition.init();
-        // Then add the transition itself.
-        transitions.add(transition);
-    }
-
-    /**
-     * Returns the closest node, among the list passed as argument, under the
-     * mouse cursor. Also stores the contact point in the given vector (if not
-     * null).
-     */
-    public Node getNodeClicked(Camera camera, Vector3f contactPoint, Vector3f contactNormal, Node... candidates)
-    {
-        CollisionResults results = new CollisionResults();
-        Vector2f click2d = application.getInputManager().getCursorPosition();
-        Vector3f click3d = camera.getWorldCoordinates(new Vector2f(click2d.x, click2d.y), 0f);
-        Vector3f dir = camera.getWorldCoordinates(new Vector2f(click2d.x, click2d.y), 1f).subtractLocal(click3d).normalizeLocal();
-
-        // 2. Aim the ray from cam loc to cam direction.
-        Ray ray = new Ray(click3d, dir);
-
-        // 3. Collect intersections between Ray and Shootables in results list.
-        for (Node n : candidates)
-        {
-            n.collideWith(ray, results);
-        }
-
-        // Retrieve results.
-        if (results.size() > 0)
-        {
-            // If there is at least one collision, return contact point and normal.
-            if (contactPoint != null)
-            {
-                contactPoint.set(results.getClosestCollision().getContactPoint());
-            }
-            if (contactNormal != null)
-            {
-                contactNormal.set(results.getClosestCollision().getContactNormal());
-            }
-
-            // Finally, retrieve the node that generated the collision.
-            Node collidedNode = results.getClosestCollision().getGeometry().getParent();
-            for (Node n : candidates)
-            {
-                if (collidedNode == n || collidedNode.hasAncestor(n))
-                {
-                    return n;
-                }
-            }
-
-            return null;
-        }
-        else
-        {
-            return null;
-        }
-    }
-
-    private Vector3f getMousePosition(MenuElement clickedElement)
-    {
-        // If some component is indeed dragged, get the cursor position on the Z = 0 plane.
-        Vector2f click2d = application.getInputManager().getCursorPosition();
-        // Then make it 3D and absolute.
-        Vector3f click3d = application.getCamera().getWorldCoordinates(new Vector2f(click2d.x, click2d.y), 0f);
-        // Finally, get the direction.
-        Vector3f dir = application.getCamera().getWorldCoordinates(new Vector2f(click2d.x, click2d.y), 1f).subtractLocal(click3d);
-
-        // Next, compute intersection of the ray with the element *local* Z=0 plane.
-        // To do that simply, subtract from the click3D position "enough of the
-        // direction vector" to nullify its z-component, when converted to the
-        // slider's local space.
-        clickedElement.worldToLocal(click3d, click3d);
-        clickedElement.worldToLocal(dir, dir).normalizeLocal();
-
-        // If the direction along Z is zero, tweak it a bit.
-        if (Math.abs(dir.z) < 0.0000001f)
-        {
-            dir.z = Math.signum(dir.z) * 0.0000001f;
-        }
-
-        click3d.subtractLocal(dir.multLocal(click3d.z / dir.z));
-        return click3d;
-    }
-
-    @Override
-    protected void refresh()
-    {
-        for (MenuElement child : menuElements)
-        {
-            child.refresh();
-        }
-    }
-
-    /**
-     * For panels - and panels only - the findLeaves iterates on every child.
-     */
-    @Override
-    protected void findLeaves(ArrayList<MenuElement> candidates)
-    {
-        for (MenuElement element : menuElements)
-        {
-            element.findLeaves(candidates);
-        }
-    }
-
-    public void add(MenuElement menuElement)
-    {
-        // Set this as the parent.
-        menuElement.menuParent = this;
-
-        attachChild(menuElement);
-
-        // If a material is set, propagate it to the child.
-        Material mat = getMenuMaterial();
-        if (mat != null)
-        {
-            menuElement.setMenuMaterial(mat);
-        }
-
-        menuElements.add(menuElement);
-        // If a font is available, refresh the added element.
-        if (menuElement.getMenuFont() != null)
-        {
-            menuElement.refresh();
-        }
-    }
-
-    public void remove(MenuElement menuElement)
-    {
-        menuElement.menuParent = null;
-        detachChild(menuElement);
-        menuElements.remove(menuElement);
-    }
-
-    /**
-     * On changing the menuMaterial, refresh all children.
-     */
-    @Override
-    public void setMenuMaterial(Material menuMaterial)
-    {
-        super.setMenuMaterial(menuMaterial);
-
-        for (MenuElement child : menuElements)
-        {
-            child.setMenuMaterial(menuMaterial);
-        }
-
-        refresh();
-    }
-
-    @Override
-    public float getLocalWidth()
-    {
-        return size.x;
-    }
-
-    @Override
-    public float getLocalHeight()
-    {
-        return size.y;
-    }
-
-    @Override
-    public float getLocalDepth()
-    {
-        float result = 0;
-        for (MenuElement element : menuElements)
-        {
-            //TODO
-            result = Math.max(result, element.getDepth());
-        }
-        return result;
-    }
-
-    /**
-     * This global listener wraps the analog and action listeners for the scene.
-     * It then redirects the events to all menu elements and their listeners.
-     */
-    private class InputListener implements AnalogListener, ActionListener
-    {
-        //   private boolean leftButtonDown = false;
-        private boolean ctrlDown = false;
-        private boolean shiftDown = false;
-
-        /**
-         * This listener is fired on analog events (mouse displacement,
-         * scrolling...)
-         */
-        @Override
-        public void onAnalog(String name, float value, float tpf)
-        {
-            // If the name begins with the menu prefix, strip it and continue.
-            if (name.startsWith(menuPrefix))
-            {
-                name = name.replace(menuPrefix, "");
-                int step = 1;
-                switch (name)
-                {
-                case "MouseWheelDown":
-                    step = -step;
-                case "MouseWheelUp":
-                    processWheel(step);
-                    break;
-                case "MouseLeft":
-                case "MouseRight":
-                case "MouseDown":
-                case "MouseUp":
-                    // If the left button is pressed, it's a drag. Process it!
-                    processDrag();
-                    break;
-                }
-            }
-        }
-
-        /**
-         * This listener is fired on non-analog events (keystrokes, clicks...)
-         */
-        @Override
-        public void onAction(String name, boolean isPressed, float tpf)
-        {
-            // If the name begins with the menu prefix, strip it and continue.
-            if (name.startsWith(menuPrefix))
-            {
-                name = name.replace(menuPrefix, "");
-                switch (name)
-                {
-                case "LShift":
-                    shiftDown = isPressed;
-                    break;
-                case "LCtrl":
-                    ctrlDown = isPressed;
-                    break;
-                case "LButton":
-                    // leftButtonDown = isPressed;
-                    // Process the click (on or off).
-                    processClick(isPressed);
-
-                    break;
-                case "RButton":
-                    // On click:
-                    if (isPressed)
-                    {
-                    }
-
-                    break;
-                }
-            }
-        }
-    }
-
-    public int attachChild(MenuElement child)
-    {
-        return super.attachChild(child);
-    }
-}
+package menu.elements;
+
+import com.jme3.app.Application;
+import com.jme3.app.SimpleApplication;
+import com.jme3.collision.CollisionResults;
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import com.jme3.input.InputManager;
+import com.jme3.input.Joystick;
+import com.jme3.input.JoystickButton;
+import com.jme3.input.KeyInput;
+import com.jme3.input.MouseInput;
+import com.jme3.input.controls.ActionListener;
+import com.jme3.input.controls.AnalogListener;
+import com.jme3.input.controls.KeyTrigger;
+import com.jme3.input.controls.MouseAxisTrigger;
+import com.jme3.input.controls.MouseButtonTrigger;
+import com.jme3.math.Matrix4f;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Ray;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.shape.Quad;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import menu.animations.Animator;
+import menu.transitions.DirectTransition;
+import menu.transitions.Transition;
+import menu.utils.Jme3DFont;
+import menu.utils.Materials;
+import menu.utils.MenuStatistics;
+
+/**
+ * The menu panel is the root of a clickable 3D menu. Add menu elements to it,
+ * and register the inputListener, you're ready to roll. To allow a composite
+ * pattern, a panel is also a menuElement. Thus, a Panel can contain other
+ * panels.
+ */
+public class Panel extends MenuElement
+{
+    // The menu prefix is appended to events strings
+    public static String menuPrefix = "MGC";
+      private Vector2f size = new Vector2f();
+    
+    private InputListener inputListener = new InputListener();
+    private ArrayList<MenuElement> menuElements = new ArrayList<>();
+    private ArrayList<Transition> transitions = new ArrayList<>();
+    // The transitions to start once their destination is prepared.
+    private ArrayList<Transition> pendingTransitions = new ArrayList<>();
+    private ArrayList<Future<Transition>> preparations = new ArrayList<>();
+    // Runs the animations of the menu, if this is the root panel.
+    private final Animator animator = new Animator();
+    // The events fired since the last update, and the ones being dispatched.
+    private ArrayList<MenuEvent> queuedEvents = new ArrayList<>();
+    private ArrayList<MenuEvent> dispatchedEvents = new ArrayList<>();
+    // Prepares the destination panels, shared by all the menus.
+    private static ExecutorService preparationExecutor = null;
+    // The elements written from other threads, shared by all the menus: the
+    // first root panel updated in a frame applies the writes.
+    private static final ConcurrentLinkedQueue<MenuElement> postedElements = new ConcurrentLinkedQueue<>();
+    // The elements to update each frame.
+    private ArrayList<MenuElement> activeElements = new ArrayList<>();
+    // The elements to refresh on the next validation.
+    private ArrayList<MenuElement> invalidElements = new ArrayList<>();
+    // If not null, the children geometries are merged by material.
+    private MaterialBatches batches = null;
+    private boolean validating = false;
+    // The navigation history, the current panel on top.
+    private ArrayList<Panel> navigationStack = new ArrayList<>();
+    // The visited panels still built, the most recent last.
+    private ArrayList<Panel> recentPanels = new ArrayList<>();
+    private int retainedPanels = 3;
+    private long memoryBudget = Long.MAX_VALUE;
+    // True if the meshes of this panel have been released.
+    private boolean hibernated = false;
+    private MenuElement clickedElement = null;
+    // Keyboard and gamepad navigation.
+    private NavigationGraph navigationGraph = new NavigationGraph();
+    private MenuElement focusedElement = null;
+    private final Vector3f focusPoint = new Vector3f();
+    private Application application = null;
+    // Scratch objects for picking and drag projection. Input events can come
+    // at a high rate (mouse polling), so processing them must not allocate.
+    private final ArrayList<MenuElement> candidates = new ArrayList<>();
+    private final CollisionResults pickResults = new CollisionResults();
+    private final Ray pickRay = new Ray();
+    private final Vector3f pickOrigin = new Vector3f();
+    private final Vector3f pickDirection = new Vector3f();
+    private final Vector3f contactPoint = new Vector3f();
+    private final Vector3f contactNormal = new Vector3f();
+    private final Quaternion inverseRotation = new Quaternion();
+    // The camera view-projection matrix is only inverted again when it changes.
+    private final Matrix4f viewProjection = new Matrix4f();
+    private final Matrix4f inverseViewProjection = new Matrix4f();
+    // Bumped each time an element is added, removed, moved or refreshed.
+    private long sceneVersion = 0;
+    // The last pick, reused while the cursor, the camera and the scene stay
+    // the same (e.g., on a burst of wheel events). The scene also moves with
+    // the nodes above the panel, hence its world transform.
+    private MenuElement pickedElement = null;
+    private Camera pickCamera = null;
+    private long pickSceneVersion = -1;
+    private final Vector2f pickCursor = new Vector2f();
+    private final Matrix4f pickViewProjection = new Matrix4f();
+    private final Transform pickWorldTransform = new Transform();
+    private final Vector3f pickContactPoint = new Vector3f();
+    private final Vector3f pickContactNormal = new Vector3f();
+    private final MenuStatistics statistics = new MenuStatistics();
+  
+
+    /**
+     * Creates an empty panel: see createSubPanel(). Also used when loading.
+     */
+    public Panel()
+    {
+    }
+
+    public Panel(Camera camera, Node parent, float distance)
+    {
+        initView(camera, parent, distance);
+    }
+
+    public void debug(SimpleApplication app)
+    {
+        Quad quad = new Quad(getLocalWidth(), getLocalHeight());
+        Geometry geo = new Geometry("Box", quad);
+
+        geo.setMaterial(Materials.transparentMaterial);
+
+        this.attachChild(geo);
+        geo.setLocalTranslation(0, 0, 0);
+
+        app.getFlyByCamera().setEnabled(true);
+        app.getInputManager().setCursorVisible(false);
+    }
+
+    /**
+     * This method creates a subpanel of a parent panel.
+     *
+     * @param parent The parent panel that will contain this one.
+     * @param position The position of the leftmost, bottom corner of the
+     * subpanel. It is expressed in the parent's referential (x [0,1], y
+     * [0,1]).
+     * @param size The proportion of the parent's space to occupy. (x [0,1], y
+     * [0,1]).
+     */
+    public Panel createSubPanel(Vector2f position, Vector2f size)
+    {
+        Panel result = new Panel();
+        
+        result.setLocalTranslation(position.x * this.size.x, position.y * this.size.y, 0);
+        result.size.set(size.x * this.size.x, size.y * this.size.y);
+        
+        return result;
+    }
+
+    /**
+     * This method will set a panel from a camera and a distance, so that the
+     * panel surface will match the camera's field of view, and will be located
+     * at the given distance from the camera.
+     */
+    public final void initView(Camera camera, Node parent, float distance)
+    {
+        // Compute the screen lower left position
+        // Find the location of the corner of the screen, at near frustum.
+        Vector3f lowerLeft = camera.getWorldCoordinates(new Vector2f(0, 0), 0);
+        // Get vector from the camera to that point
+        Vector3f viewVector = lowerLeft.subtract(camera.getLocation());
+        // Stretch it to the right length
+        viewVector.multLocal(distance / viewVector.length());
+        lowerLeft = camera.getLocation().add(viewVector);
+
+        // Retrieve zPos for later.
+        float zPos = camera.getScreenCoordinates(lowerLeft).z;
+        // Attach the node to the right place.
+        setLocalTranslation(parent.worldToLocal(lowerLeft, null));
+
+        Vector3f xAxis = camera.getWorldCoordinates(new Vector2f(camera.getWidth(), 0), zPos).subtractLocal(lowerLeft);
+        Vector3f yAxis = camera.getWorldCoordinates(new Vector2f(0, camera.getHeight()), zPos).subtractLocal(lowerLeft);
+        // Compute the "up" and "right" extents (x and y in local space) that
+        // will define the panel's size to match the screen.
+        // Eventhough the panel isn't attached yet, we already have the
+        // direction (x and y in the panel's local space) and the length is the
+        // same as expressed in the root node, as long as there is no scale 
+        // applied to the panel.
+        size.x = xAxis.length();
+        size.y = yAxis.length();
+
+        // Finally, orient the screen toward the camera
+        lookAt(lowerLeft.add(xAxis.cross(yAxis)), yAxis);
+    }
+
+    /**
+     * Registers the menu events (clicks, mouse moves...) in the inputListener.
+     * Hooks the menu node into the input manager. Do it once and for all.
+     */
+    public void register(Application application)
+    {
+        // (Re-)add the bindings.
+        InputManager inputManager = application.getInputManager();
+        // Mouse axes.
+        inputManager.addMapping(menuPrefix + "MouseRight", new MouseAxisTrigger(MouseInput.AXIS_X, false));
+        inputManager.addMapping(menuPrefix + "MouseLeft", new MouseAxisTrigger(MouseInput.AXIS_X, true));
+        inputManager.addMapping(menuPrefix + "MouseUp", new MouseAxisTrigger(MouseInput.AXIS_Y, false));
+        inputManager.addMapping(menuPrefix + "MouseDown", new MouseAxisTrigger(MouseInput.AXIS_Y, true));
+        inputManager.addMapping(menuPrefix + "MouseWheelUp", new MouseAxisTrigger(MouseInput.AXIS_WHEEL, false));
+        inputManager.addMapping(menuPrefix + "MouseWheelDown", new MouseAxisTrigger(MouseInput.AXIS_WHEEL, true));
+        // Mouse buttons.
+        inputManager.addMapping(menuPrefix + "LButton", new MouseButtonTrigger(MouseInput.BUTTON_LEFT));
+        inputManager.addMapping(menuPrefix + "RButton", new MouseButtonTrigger(MouseInput.BUTTON_RIGHT));
+        // Keyboard.
+        inputManager.addMapping(menuPrefix + "LCtrl", new KeyTrigger(KeyInput.KEY_LCONTROL));
+        inputManager.addMapping(menuPrefix + "LShift", new KeyTrigger(KeyInput.KEY_LSHIFT));
+        // Navigation, from the keyboard...
+        inputManager.addMapping(menuPrefix + "NavigateLeft", new KeyTrigger(KeyInput.KEY_LEFT));
+        inputManager.addMapping(menuPrefix + "NavigateRight", new KeyTrigger(KeyInput.KEY_RIGHT));
+        inputManager.addMapping(menuPrefix + "NavigateUp", new KeyTrigger(KeyInput.KEY_UP));
+        inputManager.addMapping(menuPrefix + "NavigateDown", new KeyTrigger(KeyInput.KEY_DOWN));
+        inputManager.addMapping(menuPrefix + "Activate", new KeyTrigger(KeyInput.KEY_RETURN), new KeyTrigger(KeyInput.KEY_SPACE));
+        inputManager.addMapping(menuPrefix + "AdjustUp", new KeyTrigger(KeyInput.KEY_PGUP), new KeyTrigger(KeyInput.KEY_ADD));
+        inputManager.addMapping(menuPrefix + "AdjustDown", new KeyTrigger(KeyInput.KEY_PGDN), new KeyTrigger(KeyInput.KEY_SUBTRACT));
+        // ... and from the gamepads: the pad moves, the first button activates,
+        // the shoulder buttons adjust.
+        Joystick[] joysticks = inputManager.getJoysticks();
+        if (joysticks != null)
+        {
+            for (Joystick joystick : joysticks)
+            {
+                if (joystick.getPovXAxis() != null)
+                {
+                    joystick.getPovXAxis().assignAxis(menuPrefix + "NavigateRight", menuPrefix + "NavigateLeft");
+                }
+                if (joystick.getPovYAxis() != null)
+                {
+                    joystick.getPovYAxis().assignAxis(menuPrefix + "NavigateUp", menuPrefix + "NavigateDown");
+                }
+                assignButton(joystick, JoystickButton.BUTTON_0, menuPrefix + "Activate");
+                assignButton(joystick, JoystickButton.BUTTON_4, menuPrefix + "AdjustDown");
+                assignButton(joystick, JoystickButton.BUTTON_5, menuPrefix + "AdjustUp");
+            }
+        }
+
+        // Init materials
+        Materials.initMaterials(application.getAssetManager());
+
+        // Register the listeners to this panel.
+        application.getInputManager().addListener(this.inputListener, menuPrefix + "MouseLeft", menuPrefix + "MouseRight",
+                menuPrefix + "MouseDown", menuPrefix + "MouseUp", menuPrefix + "MouseWheelUp", menuPrefix + "MouseWheelDown", menuPrefix + "LButton", menuPrefix + "RButton", menuPrefix + "LCtrl", menuPrefix + "LShift",
+                menuPrefix + "NavigateLeft", menuPrefix + "NavigateRight", menuPrefix + "NavigateUp", menuPrefix + "NavigateDown",
+                menuPrefix + "Activate", menuPrefix + "AdjustUp", menuPrefix + "AdjustDown");
+
+        // Save the application to access various resources.
+        this.application = application;
+    }
+
+    private static void assignButton(Joystick joystick, String buttonId, String mapping)
+    {
+        JoystickButton button = joystick.getButton(buttonId);
+        if (button != null)
+        {
+            button.assignButton(mapping);
+        }
+    }
+
+    /**
+     * Removes alll hooks. The menus won't work after that.
+     */
+    public void unRegister(InputManager inputManager)
+    {
+        application.getInputManager().removeListener(inputListener);
+        application = null;
+    }
+
+    /**
+     * Processes a click - if it's either just been pressed or just released.
+     */
+    public void processClick(boolean pressedOrReleased)
+    {
+        /* Locked branches (e.g., panels in transition) ignore input: they
+         * are skipped when picking. */
+        if (!isLocked())
+        {
+            // If it's a press:
+            if (pressedOrReleased)
+            {
+                // Cast a ray to find which element is clicked - if there is one.
+                MenuElement nodeAimed = getElementAimed(application.getCamera(), application.getInputManager().getCursorPosition());
+
+                // If something was clicked, fire its process method.
+                if (nodeAimed != null)
+                {
+                    worldToLocal(nodeAimed, contactPoint, contactPoint);
+                    nodeAimed.processClick(pressedOrReleased, contactPoint);
+                }
+                // Also store the node as the currently focused one.
+                clickedElement = nodeAimed;
+            }
+            else
+            {
+                // If the button has been released:
+                if (clickedElement != null)
+                {
+                    clickedElement.processClick(pressedOrReleased, null);
+                    clickedElement = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes a mouse drag. For locating the mouse during those events, a ray
+     * cast won't do, because the mouse can be out of any component.
+     */
+    public void processDrag()
+    {
+        /* Locked branches (e.g., panels in transition) ignore input. */
+        if (clickedElement != null && !clickedElement.isLocked())
+        {
+            clickedElement.processDrag(getMousePosition(clickedElement));
+        }
+    }
+
+    /**
+     * Processes a mouse wheel turn.
+     */
+    @Override
+    public void processWheel(int step)
+    {
+        /* Locked branches (e.g., panels in transition) ignore input: they
+         * are skipped when picking. */
+        if (!isLocked())
+        {
+            // Cast a ray to find which element is aimed - if there is one.
+            MenuElement nodeAimed = getElementAimed(application.getCamera(), application.getInputManager().getCursorPosition());
+
+            // If something was aimed, fire its process method.
+            if (nodeAimed != null)
+            {
+                nodeAimed.processWheel(step);
+            }
+        }
+    }
+
+    /**
+     * Navigates to the destination panel of the transition, and pushes it on
+     * the navigation stack. The source panel should be the current one.
+     */
+    public void navigateTo(Transition transition)
+    {
+        if (navigationStack.isEmpty())
+        {
+            navigationStack.add(transition.getSource());
+            visit(transition.getSource());
+        }
+        navigationStack.add(transition.getDestination());
+        startNavigation(transition);
+    }
+
+    /**
+     * Navigates back to the previous panel on the navigation stack, which must
+     * be the destination of the transition.
+     */
+    public void navigateBack(Transition transition)
+    {
+        if (transition.getDestination() != getPreviousPanel())
+        {
+            throw new IllegalArgumentException("The transition must lead to the previous panel.");
+        }
+        navigationStack.remove(navigationStack.size() - 1);
+        startNavigation(transition);
+    }
+
+    /**
+     * Navigates back to the previous panel directly, if there is one.
+     *
+     * @return false if there is no previous panel.
+     */
+    public boolean navigateBack()
+    {
+        if (getPreviousPanel() == null)
+        {
+            return false;
+        }
+
+        navigateBack(new DirectTransition(getCurrentPanel(), getPreviousPanel()));
+        return true;
+    }
+
+    /**
+     * Returns the panel on top of the navigation stack, or null.
+     */
+    public Panel getCurrentPanel()
+    {
+        return navigationStack.isEmpty() ? null : navigationStack.get(navigationStack.size() - 1);
+    }
+
+    /**
+     * Returns the panel navigateBack() leads to, or null.
+     */
+    public Panel getPreviousPanel()
+    {
+        return navigationStack.size() < 2 ? null : navigationStack.get(navigationStack.size() - 2);
+    }
+
+    private void startNavigation(Transition transition)
+    {
+        // A hibernated panel is built again as it's added.
+        transition.getDestination().hibernated = false;
+        addTransition(transition);
+        visit(transition.getDestination());
+        trimRecentPanels();
+    }
+
+    private void visit(Panel panel)
+    {
+        recentPanels.remove(panel);
+        recentPanels.add(panel);
+    }
+
+    /**
+     * Keeps the most recently visited panels built, within the limits, and
+     * makes the others hibernate. Displayed panels are always kept.
+     */
+    private void trimRecentPanels()
+    {
+        int kept = 0;
+        long memory = 0;
+        for (int i = recentPanels.size() - 1; i >= 0; i--)
+        {
+            Panel panel = recentPanels.get(i);
+            kept++;
+            memory += panel.getMemoryUsage();
+            if ((kept > retainedPanels || memory > memoryBudget) && panel.menuParent == null)
+            {
+                panel.hibernate();
+                recentPanels.remove(i);
+            }
+        }
+    }
+
+    /**
+     * Sets how many of the most recently visited panels are kept built, ready
+     * for instant transitions. Older ones hibernate.
+     */
+    public void setRetainedPanels(int retainedPanels)
+    {
+        this.retainedPanels = retainedPanels;
+        trimRecentPanels();
+    }
+
+    public int getRetainedPanels()
+    {
+        return retainedPanels;
+    }
+
+    /**
+     * Sets the memory (in bytes) the recently visited panels may keep. Older
+     * panels hibernate until the memory used fits.
+     */
+    public void setMemoryBudget(long memoryBudget)
+    {
+        this.memoryBudget = memoryBudget;
+        trimRecentPanels();
+    }
+
+    public long getMemoryBudget()
+    {
+        return memoryBudget;
+    }
+
+    /**
+     * Releases the meshes of this panel and its children. They are built again
+     * when the panel is next added and validated.
+     */
+    public void hibernate()
+    {
+        release();
+        invalidate();
+        hibernated = true;
+    }
+
+    /**
+     * Returns true if the panel meshes have been released.
+     */
+    public boolean isHibernated()
+    {
+        return hibernated;
+    }
+
+    @Override
+    protected void release()
+    {
+        for (MenuElement child : menuElements)
+        {
+            child.release();
+        }
+
+        // Drop the merged meshes: they will be merged again.
+        if (batches != null)
+        {
+            setBatched(false);
+            setBatched(true);
+        }
+    }
+
+    @Override
+    public long getMemoryUsage()
+    {
+        long result = batches == null ? 0 : batches.getMemoryUsage();
+        for (MenuElement child : menuElements)
+        {
+            result += child.getMemoryUsage();
+        }
+        return result;
+    }
+
+    /**
+     * Moves the focus to the closest element in the given direction - unless
+     * the focused element uses the key itself. If nothing is focused yet, the
+     * top-left element gets the focus.
+     */
+    public void navigate(NavigationGraph.Direction direction)
+    {
+        /* Locked branches (e.g., panels in transition) ignore input: they
+         * are left out of the navigation graph. */
+        if (!isLocked())
+        {
+            validate();
+            navigationGraph.validate(this);
+
+            if (focusedElement == null || !navigationGraph.contains(focusedElement))
+            {
+                setFocusedElement(navigationGraph.getFirst());
+            }
+            else if (!focusedElement.processKey(direction))
+            {
+                MenuElement neighbour = navigationGraph.getNeighbour(focusedElement, direction);
+                if (neighbour != null)
+                {
+                    setFocusedElement(neighbour);
+                }
+            }
+        }
+    }
+
+    /**
+     * Activates the focused element, as if it was clicked in its center.
+     */
+    public void activate(boolean pressedOrReleased)
+    {
+        /* Locked branches (e.g., panels in transition) ignore input. */
+        if (focusedElement != null && !focusedElement.isLocked())
+        {
+            focusPoint.set(focusedElement.getLocalWidth() / 2, focusedElement.getLocalHeight() / 2, 0);
+            focusedElement.processClick(pressedOrReleased, focusPoint);
+        }
+    }
+
+    /**
+     * Adjusts the focused element (by default, as if the wheel was rolled
+     * over it).
+     */
+    public void adjust(int step)
+    {
+        /* Locked branches (e.g., panels in transition) ignore input. */
+        if (focusedElement != null && !focusedElement.isLocked())
+        {
+            focusedElement.processAdjust(step);
+        }
+    }
+
+    /**
+     * Returns the element having the keyboard focus, or null.
+     */
+    public MenuElement getFocusedElement()
+    {
+        return focusedElement;
+    }
+
+    /**
+     * Gives the keyboard focus to the given element (or to nobody, if null).
+     */
+    public void setFocusedElement(MenuElement element)
+    {
+        if (element != focusedElement)
+        {
+            if (focusedElement != null)
+            {
+                focusedElement.processFocus(false);
+            }
+            focusedElement = element;
+            if (focusedElement != null)
+            {
+                focusedElement.processFocus(true);
+            }
+        }
+    }
+
+    /**
+     * Returns a counter bumped each time an element of this panel (or of its
+     * subpanels) is added, removed, moved or refreshed. Whatever is computed
+     * from the elements positions remains valid while it stays the same.
+     */
+    public long getSceneVersion()
+    {
+        return sceneVersion;
+    }
+
+    /**
+     * Returns the statistics of the input processed by this panel, and the
+     * time spent updating, refreshing and picking it.
+     */
+    public MenuStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    @Override
+    protected void layoutChanged()
+    {
+        sceneVersion++;
+        super.layoutChanged();
+    }
+
+    /**
+     * On updating, update all children and process all transitions.
+     */
+    @Override
+    public void update(float tpf)
+    {
+        long start = System.nanoTime();
+
+        // Apply what other threads wrote since the last frame.
+        if (menuParent == null)
+        {
+            applyPostedElements();
+        }
+
+        // Dispatch the events fired by the input since the last frame. The
+        // changes the listeners make are then validated in this very frame.
+        dispatchEvents(tpf);
+
+        // Start the transitions whose destination is now prepared: they are
+        // then built along with the rest.
+        for (int i = 0; i < preparations.size(); i++)
+        {
+            if (preparations.get(i).isDone())
+            {
+                checkPreparation(preparations.remove(i));
+                addTransition(pendingTransitions.remove(i));
+                i--;
+            }
+        }
+
+        // Refresh whatever changed since the last frame.
+        validate();
+
+        // Move everything animated, transitions included.
+        animator.update(tpf);
+
+        // A list of transitions to remove if they are over.
+        ArrayList<Transition> toRemove = null;
+        // For each transition:
+        for (Transition transition : transitions)
+        {
+            // Update the transition.
+            transition.update(tpf);
+
+            // If the transition is over, mark it to remove.
+            if (transition.isOver())
+            {
+                if (toRemove == null)
+                {
+                    toRemove = new ArrayList<>();
+                }
+                toRemove.add(transition);
+            }
+        }
+
+        // Remove all finished transitions
+        if (toRemove != null)
+        {
+            for (Transition t : toRemove)
+            {
+                // Finalize the transition, and let both panels take input again.
+                t.finish();
+                t.getSource().unlock();
+                t.getDestination().unlock();
+                // Also remove the source panel, now fully replaced by the destination.
+                remove(t.getSource());
+            }
+
+            transitions.removeAll(toRemove);
+
+            // The panels left may have to hibernate.
+            trimRecentPanels();
+        }
+
+        // Finally, update the active elements only - static ones cost nothing.
+        for (int i = 0; i < activeElements.size(); i++)
+        {
+            activeElements.get(i).update(tpf);
+        }
+
+        // Forget the elements that have settled.
+        for (int i = activeElements.size() - 1; i >= 0; i--)
+        {
+            if (!activeElements.get(i).isActive())
+            {
+                activeElements.remove(i);
+            }
+        }
+
+        // This panel only needs updating while something below it moves.
+        setActive(!activeElements.isEmpty() || !transitions.isEmpty() || !pendingTransitions.isEmpty() || animator.getCount() > 0);
+        statistics.addUpdateTime(System.nanoTime() - start);
+    }
+
+    /**
+     * The animations of a whole menu are run by its root panel.
+     */
+    @Override
+    public Animator getAnimator()
+    {
+        return menuParent != null ? menuParent.getAnimator() : animator;
+    }
+
+    /**
+     * Queues an element written from another thread (see MenuElement.post).
+     */
+    static void queuePosted(MenuElement element)
+    {
+        postedElements.offer(element);
+    }
+
+    /**
+     * Applies the writes posted by other threads, to all the menus.
+     */
+    private static void applyPostedElements()
+    {
+        MenuElement element;
+        while ((element = postedElements.poll()) != null)
+        {
+            element.applyPosted();
+        }
+    }
+
+    /**
+     * Queues an event fired by an element of this menu, to dispatch on the
+     * next update.
+     */
+    void queueEvent(MenuEvent event)
+    {
+        queuedEvents.add(event);
+    }
+
+    /**
+     * Dispatches the queued events. The events fired by the listeners meanwhile
+     * are dispatched on the next update.
+     */
+    private void dispatchEvents(float tpf)
+    {
+        if (queuedEvents.isEmpty())
+        {
+            return;
+        }
+
+        ArrayList<MenuEvent> swap = dispatchedEvents;
+        dispatchedEvents = queuedEvents;
+        queuedEvents = swap;
+        for (int i = 0; i < dispatchedEvents.size(); i++)
+        {
+            MenuEvent event = dispatchedEvents.get(i);
+            event.getSource().dispatchEvent(event, tpf);
+        }
+        dispatchedEvents.clear();
+    }
+
+    /**
+     * When a child becomes active, update it every frame.
+     */
+    @Override
+    void childActivated(MenuElement child)
+    {
+        if (!activeElements.contains(child))
+        {
+            activeElements.add(child);
+        }
+        setActive(true);
+    }
+
+    public void addTransition(Transition transition)
+    {
+        // Both panels ignore input while moving; the rest of the menu doesn't.
+        transition.getSource().lock();
+        transition.getDestination().lock();
+        // First add the destination panel to the menu.
+        add(transition.getDestination());
+        // Init the transistion.
+        transition.init();
+        // Then add the transition itself.
+        transitions.add(transition);
+        setActive(true);
+    }
+
+    /**
+     * Adds the transition once its destination panel is prepared: the glyphs
+     * of its labels are built on a background thread, so that the first frames
+     * of the transition don't have to. The transition starts on the first
+     * update after that.
+     *
+     * @return a future, done once the destination is prepared.
+     */
+    public Future<Transition> addTransitionWhenReady(final Transition transition)
+    {
+        // Find what to build now: the panel must not be read off-thread.
+        final ArrayList<Jme3DFont> fonts = new ArrayList<>();
+        final ArrayList<String> texts = new ArrayList<>();
+        ArrayList<MenuElement> leaves = new ArrayList<>();
+        transition.getDestination().findLeaves(leaves);
+        for (MenuElement leaf : leaves)
+        {
+            if (leaf instanceof Label)
+            {
+                // The destination inherits this panel's font if it has none.
+                Jme3DFont font = leaf.getMenuFont() != null ? leaf.getMenuFont() : getMenuFont();
+                if (font != null)
+                {
+                    fonts.add(font);
+                    texts.add(((Label) leaf).text);
+                }
+            }
+        }
+
+        Future<Transition> result = getPreparationExecutor().submit(new Callable<Transition>()
+        {
+            @Override
+            public Transition call()
+            {
+                for (int i = 0; i < fonts.size(); i++)
+                {
+                    fonts.get(i).prepare(texts.get(i));
+                }
+                return transition;
+            }
+        });
+        pendingTransitions.add(transition);
+        preparations.add(result);
+        setActive(true);
+        return result;
+    }
+
+    /**
+     * Logs the failure of a preparation. The transition still starts: its
+     * destination is then built as usual.
+     */
+    private static void checkPreparation(Future<Transition> preparation)
+    {
+        try
+        {
+            preparation.get();
+        }
+        catch (InterruptedException | ExecutionException ex)
+        {
+            Logger.getLogger(Panel.class.getName()).log(Level.WARNING, "Could not prepare the transition.", ex);
+        }
+    }
+
+    /**
+     * Returns the background thread preparing meshes for the menus.
+     */
+    public static synchronized ExecutorService getPreparationExecutor()
+    {
+        if (preparationExecutor == null)
+        {
+            preparationExecutor = Executors.newSingleThreadExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    // Don't keep the application alive.
+                    Thread thread = new Thread(runnable, "Menu preparation");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return preparationExecutor;
+    }
+
+    /**
+     * Returns the leaf menu element under the given cursor position, or null.
+     * The contact point is left, in world space, in the contactPoint scratch
+     * vector.
+     */
+    MenuElement getElementAimed(Camera camera, Vector2f cursorPosition)
+    {
+        // Pick the elements as they will be displayed.
+        validate();
+
+        // If nothing moved since the last pick, its result still holds.
+        boolean cacheHit = camera == pickCamera && sceneVersion == pickSceneVersion
+                && pickCursor.equals(cursorPosition) && pickViewProjection.equals(camera.getViewProjectionMatrix())
+                && pickWorldTransform.equals(getWorldTransform());
+        statistics.countPick(cacheHit);
+        long start = System.nanoTime();
+        if (!cacheHit)
+        {
+            // First fill the list of all leaf menu elements, to avoid calling 
+            // this method on subpanels and raytracing several times.
+            candidates.clear();
+            findLeaves(candidates);
+
+            // Then cast a ray to find which element is aimed - if there is one.
+            pickedElement = getNodeClicked(camera, cursorPosition, pickContactPoint, pickContactNormal, candidates);
+
+            // Save what the result depends on.
+            pickCamera = camera;
+            pickSceneVersion = sceneVersion;
+            pickCursor.set(cursorPosition);
+            pickViewProjection.set(camera.getViewProjectionMatrix());
+            pickWorldTransform.set(getWorldTransform());
+        }
+        statistics.addPickTime(System.nanoTime() - start);
+
+        contactPoint.set(pickContactPoint);
+        contactNormal.set(pickContactNormal);
+        return pickedElement;
+    }
+
+    /**
+     * Returns the closest node, among the list passed as argument, under the
+     * mouse cursor. Also stores the contact point in the given vector (if not
+     * null).
+     */
+    public Node getNodeClicked(Camera camera, Vector3f contactPoint, Vector3f contactNormal, Node... candidates)
+    {
+        return getNodeClicked(camera, application.getInputManager().getCursorPosition(), contactPoint, contactNormal, Arrays.asList(candidates));
+    }
+
+    /**
+     * Returns the closest node, among the list passed as argument, under the
+     * given cursor position. Also stores the contact point in the given vector
+     * (if not null). This does not allocate: the ray and the results are
+     * reused from one call to the other.
+     */
+    public <T extends Node> T getNodeClicked(Camera camera, Vector2f cursorPosition, Vector3f contactPoint, Vector3f contactNormal, List<T> candidates)
+    {
+        pickResults.clear();
+        // 1. Compute the ray origin (on the near plane) and direction.
+        getWorldCoordinates(camera, cursorPosition, 0f, pickOrigin);
+        getWorldCoordinates(camera, cursorPosition, 1f, pickDirection).subtractLocal(pickOrigin).normalizeLocal();
+
+        // 2. Aim the ray from cam loc to cam direction.
+        pickRay.setOrigin(pickOrigin);
+        pickRay.setDirection(pickDirection);
+
+        // 3. Collect intersections between Ray and Shootables in results list.
+        for (int i = 0; i < candidates.size(); i++)
+        {
+            candidates.get(i).collideWith(pickRay, pickResults);
+        }
+
+        // Retrieve results.
+        if (pickResults.size() > 0)
+        {
+            // If there is at least one collision, return contact point and normal.
+            if (contactPoint != null)
+            {
+                contactPoint.set(pickResults.getClosestCollision().getContactPoint());
+            }
+            if (contactNormal != null)
+            {
+                contactNormal.set(pickResults.getClosestCollision().getContactNormal());
+            }
+
+            // Finally, retrieve the node that generated the collision.
+            Node collidedNode = pickResults.getClosestCollision().getGeometry().getParent();
+            for (int i = 0; i < candidates.size(); i++)
+            {
+                T n = candidates.get(i);
+                if (collidedNode == n || collidedNode.hasAncestor(n))
+                {
+                    return n;
+                }
+            }
+
+            return null;
+        }
+        else
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the cursor position, projected on the given element local Z = 0
+     * plane. The returned vector is a scratch vector, reused on the next call.
+     */
+    private Vector3f getMousePosition(MenuElement clickedElement)
+    {
+        // If some component is indeed dragged, get the cursor position on the Z = 0 plane.
+        Vector2f click2d = application.getInputManager().getCursorPosition();
+        // Then make it 3D and absolute, on both the near and far planes.
+        getWorldCoordinates(application.getCamera(), click2d, 0f, pickOrigin);
+        getWorldCoordinates(application.getCamera(), click2d, 1f, pickDirection);
+
+        // Next, compute intersection of the ray with the element *local* Z=0 plane.
+        // To do that simply, subtract from the click3D position "enough of the
+        // direction vector" to nullify its z-component, when converted to the
+        // slider's local space.
+        worldToLocal(clickedElement, pickOrigin, pickOrigin);
+        worldToLocal(clickedElement, pickDirection, pickDirection).subtractLocal(pickOrigin).normalizeLocal();
+
+        // If the direction along Z is zero, tweak it a bit.
+        if (Math.abs(pickDirection.z) < 0.0000001f)
+        {
+            pickDirection.z = Math.signum(pickDirection.z) * 0.0000001f;
+        }
+
+        pickOrigin.subtractLocal(pickDirection.multLocal(pickOrigin.z / pickDirection.z));
+        return pickOrigin;
+    }
+
+    /**
+     * Same as Camera.getWorldCoordinates, except the inverted view-projection
+     * matrix is kept from one call to the other, instead of being allocated
+     * and computed each time.
+     */
+    private Vector3f getWorldCoordinates(Camera camera, Vector2f screenPosition, float projectionZPos, Vector3f store)
+    {
+        if (!viewProjection.equals(camera.getViewProjectionMatrix()))
+        {
+            viewProjection.set(camera.getViewProjectionMatrix());
+            inverseViewProjection.set(viewProjection).invertLocal();
+        }
+
+        store.set((screenPosition.x / camera.getWidth() - camera.getViewPortLeft()) / (camera.getViewPortRight() - camera.getViewPortLeft()) * 2 - 1,
+                (screenPosition.y / camera.getHeight() - camera.getViewPortBottom()) / (camera.getViewPortTop() - camera.getViewPortBottom()) * 2 - 1,
+                projectionZPos * 2 - 1);
+        float w = inverseViewProjection.multProj(store, store);
+        return store.multLocal(1f / w);
+    }
+
+    /**
+     * Same as Spatial.worldToLocal, without allocating the inverse rotation.
+     */
+    private Vector3f worldToLocal(Spatial spatial, Vector3f in, Vector3f store)
+    {
+        Transform world = spatial.getWorldTransform();
+        store.set(in).subtractLocal(world.getTranslation());
+        inverseRotation.set(world.getRotation()).inverseLocal().multLocal(store);
+        return store.divideLocal(world.getScale());
+    }
+
+    /**
+     * Refreshing a panel validates its invalid children - each of them is
+     * refreshed once, however many times it was invalidated.
+     */
+    @Override
+    protected void refresh()
+    {
+        long start = System.nanoTime();
+        validating = true;
+        for (int i = 0; i < invalidElements.size(); i++)
+        {
+            MenuElement child = invalidElements.get(i);
+            child.validate();
+            if (batches != null && child.isValid())
+            {
+                batches.elementRefreshed(child);
+            }
+        }
+
+        // Then merge again the batches that changed.
+        if (batches != null)
+        {
+            batches.validate();
+        }
+        validating = false;
+
+        // Keep the children that can't be refreshed yet (e.g. lacking a font):
+        // they are checked again when their style changes, not on each frame.
+        for (int i = invalidElements.size() - 1; i >= 0; i--)
+        {
+            if (invalidElements.get(i).isValid())
+            {
+                invalidElements.remove(i);
+            }
+        }
+        statistics.addRefreshTime(System.nanoTime() - start);
+    }
+
+    /**
+     * In batched mode, the geometries of the children sharing the same
+     * material are merged, so that the panel renders in a handful of draw
+     * calls. Only the affected batches are merged again when a child is
+     * refreshed, moved or removed. Subpanels and carousels are never merged:
+     * batch subpanels on their own.
+     */
+    public void setBatched(boolean batched)
+    {
+        if (batched && batches == null)
+        {
+            batches = new MaterialBatches(this);
+            for (MenuElement child : menuElements)
+            {
+                batches.elementRefreshed(child);
+            }
+            markInvalid();
+        }
+        else if (!batched && batches != null)
+        {
+            batches.dispose();
+            batches = null;
+        }
+    }
+
+    public boolean isBatched()
+    {
+        return batches != null;
+    }
+
+    /**
+     * Returns the number of merged geometries, when batched.
+     */
+    public int getBatchCount()
+    {
+        return batches == null ? 0 : batches.getBatchCount();
+    }
+
+    /**
+     * In batched mode, a child moving may have to be merged again.
+     */
+    @Override
+    void childChanged(MenuElement child)
+    {
+        if (batches != null && child.menuParent == this)
+        {
+            batches.elementMoved(child);
+            if (!validating)
+            {
+                markInvalid();
+            }
+        }
+        super.childChanged(child);
+    }
+
+    /**
+     * Refreshing a panel changes nothing by itself: each child it refreshes
+     * reports its own change, and a panel with nothing to refresh keeps the
+     * same layout.
+     */
+    @Override
+    boolean refreshChangesLayout()
+    {
+        return false;
+    }
+
+    /**
+     * Subpanels are never merged in their parent's batches.
+     */
+    @Override
+    protected boolean canBatch()
+    {
+        return false;
+    }
+
+    /**
+     * Invalidating a panel invalidates all of its children.
+     */
+    @Override
+    public void invalidate()
+    {
+        for (MenuElement child : menuElements)
+        {
+            child.invalidate();
+        }
+        super.invalidate();
+    }
+
+    /**
+     * When a child becomes invalid, validate it on the next validation.
+     */
+    @Override
+    void childInvalidated(MenuElement child)
+    {
+        if (!invalidElements.contains(child))
+        {
+            invalidElements.add(child);
+        }
+        markInvalid();
+    }
+
+    /**
+     * For panels - and panels only - the findLeaves iterates on every child,
+     * except the locked ones.
+     */
+    @Override
+    protected void findLeaves(ArrayList<MenuElement> candidates)
+    {
+        for (MenuElement element : menuElements)
+        {
+            element.findUnlockedLeaves(candidates);
+        }
+    }
+
+    public void add(MenuElement menuElement)
+    {
+        // Set this as the parent.
+        menuElement.menuParent = this;
+
+        attachChild(menuElement);
+
+        // The child now inherits this panel's font and material.
+        menuElement.styleChanged();
+
+        menuElements.add(menuElement);
+        layoutChanged();
+        // If the element is already moving, update it from now on.
+        if (menuElement.isActive())
+        {
+            childActivated(menuElement);
+        }
+        // Refresh the added element on the next validation - it may have been
+        // invalidated before having a parent.
+        menuElement.invalidate();
+        if (!menuElement.isValid())
+        {
+            childInvalidated(menuElement);
+        }
+    }
+
+    public void remove(MenuElement menuElement)
+    {
+        menuElement.menuParent = null;
+        menuElement.styleChanged();
+        detachChild(menuElement);
+        menuElements.remove(menuElement);
+        activeElements.remove(menuElement);
+        invalidElements.remove(menuElement);
+        if (batches != null)
+        {
+            batches.elementRemoved(menuElement);
+        }
+        layoutChanged();
+
+        // The focus can't stay on a removed element.
+        if (focusedElement != null && (focusedElement == menuElement || focusedElement.hasAncestor(menuElement)))
+        {
+            setFocusedElement(null);
+        }
+    }
+
+    /**
+     * When the style of a panel changes, the style its children inherit may
+     * change too.
+     */
+    @Override
+    void styleChanged()
+    {
+        super.styleChanged();
+
+        for (MenuElement child : menuElements)
+        {
+            child.styleChanged();
+        }
+    }
+
+    @Override
+    public float getLocalWidth()
+    {
+        return size.x;
+    }
+
+    @Override
+    public float getLocalHeight()
+    {
+        return size.y;
+    }
+
+    @Override
+    public float getLocalDepth()
+    {
+        float result = 0;
+        for (MenuElement element : menuElements)
+        {
+            //TODO
+            result = Math.max(result, element.getDepth());
+        }
+        return result;
+    }
+
+    /**
+     * This global listener wraps the analog and action listeners for the scene.
+     * It then redirects the events to all menu elements and their listeners.
+     */
+    private class InputListener implements AnalogListener, ActionListener
+    {
+        //   private boolean leftButtonDown = false;
+        private boolean ctrlDown = false;
+        private boolean shiftDown = false;
+
+        /**
+         * This listener is fired on analog events (mouse displacement,
+         * scrolling...)
+         */
+        @Override
+        public void onAnalog(String name, float value, float tpf)
+        {
+            // If the name begins with the menu prefix, strip it and continue.
+            if (name.startsWith(menuPrefix))
+            {
+                name = name.replace(menuPrefix, "");
+                int step = 1;
+                switch (name)
+                {
+                case "MouseWheelDown":
+                    step = -step;
+                case "MouseWheelUp":
+                    processWheel(step);
+                    break;
+                case "MouseLeft":
+                case "MouseRight":
+                case "MouseDown":
+                case "MouseUp":
+                    // If the left button is pressed, it's a drag. Process it!
+                    processDrag();
+                    break;
+                }
+            }
+        }
+
+        /**
+         * This listener is fired on non-analog events (keystrokes, clicks...)
+         */
+        @Override
+        public void onAction(String name, boolean isPressed, float tpf)
+        {
+            // If the name begins with the menu prefix, strip it and continue.
+            if (name.startsWith(menuPrefix))
+            {
+                name = name.replace(menuPrefix, "");
+                switch (name)
+                {
+                case "LShift":
+                    shiftDown = isPressed;
+                    break;
+                case "LCtrl":
+                    ctrlDown = isPressed;
+                    break;
+                case "LButton":
+                    // leftButtonDown = isPressed;
+                    // Process the click (on or off).
+                    processClick(isPressed);
+
+                    break;
+                case "RButton":
+                    // On click:
+                    if (isPressed)
+                    {
+                    }
+
+                    break;
+                case "NavigateLeft":
+                    if (isPressed)
+                    {
+                        navigate(NavigationGraph.Direction.LEFT);
+                    }
+                    break;
+                case "NavigateRight":
+                    if (isPressed)
+                    {
+                        navigate(NavigationGraph.Direction.RIGHT);
+                    }
+                    break;
+                case "NavigateUp":
+                    if (isPressed)
+                    {
+                        navigate(NavigationGraph.Direction.UP);
+                    }
+                    break;
+                case "NavigateDown":
+                    if (isPressed)
+                    {
+                        navigate(NavigationGraph.Direction.DOWN);
+                    }
+                    break;
+                case "Activate":
+                    activate(isPressed);
+                    break;
+                case "AdjustUp":
+                    if (isPressed)
+                    {
+                        adjust(1);
+                    }
+                    break;
+                case "AdjustDown":
+                    if (isPressed)
+                    {
+                        adjust(-1);
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    public int attachChild(MenuElement child)
+    {
+        return super.attachChild(child);
+    }
+
+    /**
+     * Saves the panel size, its elements and settings. A loaded root panel
+     * keeps the place it had in front of the camera, but has to be registered
+     * again.
+     */
+    @Override
+    public void write(JmeExporter ex) throws IOException
+    {
+        super.write(ex);
+        OutputCapsule capsule = ex.getCapsule(this);
+        capsule.write(size.x, "width", 0);
+        capsule.write(size.y, "height", 0);
+        capsule.write(isBatched(), "batched", false);
+        capsule.write(retainedPanels, "retainedPanels", 3);
+        capsule.write(memoryBudget, "memoryBudget", Long.MAX_VALUE);
+    }
+
+    @Override
+    public void read(JmeImporter im) throws IOException
+    {
+        super.read(im);
+        InputCapsule capsule = im.getCapsule(this);
+        size.set(capsule.readFloat("width", 0), capsule.readFloat("height", 0));
+        retainedPanels = capsule.readInt("retainedPanels", 3);
+        memoryBudget = capsule.readLong("memoryBudget", Long.MAX_VALUE);
+
+        // The elements were read as plain children: add them again, so that
+        // they are refreshed on the next validation.
+        for (Spatial child : new ArrayList<>(getChildren()))
+        {
+            detachChild(child);
+            add((MenuElement) child);
+        }
+        setBatched(capsule.readBoolean("batched", false));
+    }
+}
@@ -0,0 +1,473 @@
+package menu.elements;
+
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import com.jme3.export.Savable;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Spatial;
+import java.io.IOException;
+import menu.utils.Jme3DFont;
+import menu.utils.MeshUtils;
+
+/**
+ * A scrolling list of texts, read from a data source. Only the visible rows
+ * (plus one above and below) exist as labels: scrolling binds them to other
+ * items instead of creating new ones, so a list of thousands of items costs as
+ * much as its viewport.
+ */
+public class ScrollList extends MenuElement
+{
+    /**
+     * The items displayed by a scroll list.
+     */
+    public interface DataSource
+    {
+        public int getItemCount();
+
+        public String getItemText(int index);
+    }
+    // The data source of a loaded list, until it is given its own.
+    private static final DataSource emptySource = new DataSource()
+    {
+        @Override
+        public int getItemCount()
+        {
+            return 0;
+        }
+
+        @Override
+        public String getItemText(int index)
+        {
+            return null;
+        }
+    };
+    // The rows built beyond each side of the viewport.
+    private static final int overscan = 1;
+    // The height of a row, in font units.
+    private static final float rowHeight = 1.2f;
+    // A drag shorter than this (in rows) is a click.
+    private static final float clickThreshold = 0.2f;
+    private DataSource dataSource;
+    private int visibleRows;
+    private float width;
+    // The recycled rows: item i is displayed by rows[i % rows.length].
+    private Label rows[];
+    // The item each row displays, -1 if none.
+    private int rowItems[];
+    // The index (in rows, may be fractional) of the item on top.
+    private float scrollOffset = 0;
+    private int selectedIndex = -1;
+    private Geometry hitGeometry = null;
+    // The item pressed, and where the drag started.
+    private int pressedIndex = -1;
+    private float pressY;
+    private float pressOffset;
+
+    /**
+     * Creates a list showing the items of the given data source.
+     *
+     * @param visibleRows The number of rows displayed at once.
+     * @param width The width of the list, in font units.
+     */
+    public ScrollList(DataSource dataSource, int visibleRows, float width)
+    {
+        if (dataSource == null)
+        {
+            throw new NullPointerException();
+        }
+
+        setName("ScrollList");
+        this.dataSource = dataSource;
+        this.visibleRows = visibleRows;
+        this.width = width;
+        createRows();
+    }
+
+    /**
+     * Only used when loading.
+     */
+    public ScrollList()
+    {
+        dataSource = emptySource;
+    }
+
+    private void createRows()
+    {
+        rows = new Label[visibleRows + 2 * overscan + 1];
+        rowItems = new int[rows.length];
+        for (int i = 0; i < rows.length; i++)
+        {
+            rows[i] = new Label("");
+            rows[i].menuParent = this;
+            rowItems[i] = -1;
+            attachChild(rows[i]);
+        }
+        bindRows();
+    }
+
+    /**
+     * Sets the items displayed, e.g. after loading a list whose data source
+     * can't be saved.
+     */
+    public void setDataSource(DataSource dataSource)
+    {
+        if (dataSource == null)
+        {
+            throw new NullPointerException();
+        }
+
+        this.dataSource = dataSource;
+        dataChanged();
+    }
+
+    /**
+     * Reads the data source again, after its items changed.
+     */
+    public void dataChanged()
+    {
+        for (int i = 0; i < rows.length; i++)
+        {
+            rowItems[i] = -1;
+        }
+        if (selectedIndex >= dataSource.getItemCount())
+        {
+            selectedIndex = -1;
+        }
+        scrollTo(scrollOffset);
+    }
+
+    /**
+     * Scrolls so that the given item (possibly fractional) is on top.
+     */
+    public void scrollTo(float offset)
+    {
+        float maxOffset = Math.max(0, dataSource.getItemCount() - visibleRows);
+        scrollOffset = FastMath.clamp(offset, 0, maxOffset);
+        bindRows();
+    }
+
+    public float getScrollOffset()
+    {
+        return scrollOffset;
+    }
+
+    /**
+     * Selects the given item, and scrolls to show it. A click fires an action
+     * event instead, with the index clicked.
+     */
+    public void setSelectedIndex(int index)
+    {
+        if (index != selectedIndex)
+        {
+            fireValueChanged(index);
+        }
+        selectedIndex = index;
+        if (index < scrollOffset)
+        {
+            scrollTo(index);
+        }
+        else if (index > scrollOffset + visibleRows - 1)
+        {
+            scrollTo(index - visibleRows + 1);
+        }
+    }
+
+    /**
+     * Same as setSelectedIndex(), from any thread (see MenuElement.post()).
+     */
+    public void postSelectedIndex(int index)
+    {
+        post(Property.INDEX, index);
+    }
+
+    @Override
+    void applyProperty(Property property, Object value)
+    {
+        if (property == Property.INDEX)
+        {
+            setSelectedIndex((Integer) value);
+        }
+        else
+        {
+            super.applyProperty(property, value);
+        }
+    }
+
+    /**
+     * @return the selected item, -1 if none.
+     */
+    public int getSelectedIndex()
+    {
+        return selectedIndex;
+    }
+
+    /**
+     * Binds the rows to the items around the scroll offset, and places them.
+     * Only the rows coming into view get a new text.
+     */
+    private void bindRows()
+    {
+        int first = (int) FastMath.floor(scrollOffset) - overscan;
+        int count = dataSource.getItemCount();
+        for (int item = first; item < first + rows.length; item++)
+        {
+            int row = (item % rows.length + rows.length) % rows.length;
+            Label label = rows[row];
+            if (item < 0 || item >= count)
+            {
+                rowItems[row] = -1;
+                label.setCullHint(Spatial.CullHint.Always);
+                continue;
+            }
+
+            if (rowItems[row] != item)
+            {
+                rowItems[row] = item;
+                label.setText(dataSource.getItemText(item));
+            }
+
+            // Rows out of the viewport are built, but not shown. Neither are
+            // the rows partly out of it, while scrolling.
+            float position = item - scrollOffset;
+            boolean visible = position >= 0 && position <= visibleRows - 1;
+            label.setCullHint(visible ? Spatial.CullHint.Inherit : Spatial.CullHint.Always);
+            label.setLocalTranslation(0, (visibleRows - 1 - position) * rowHeight, 0);
+        }
+    }
+
+    /**
+     * Returns the item displayed at the given local height, -1 if none.
+     */
+    private int getItemAt(float y)
+    {
+        if (y < 0 || y >= getLocalHeight())
+        {
+            return -1;
+        }
+
+        int item = (int) FastMath.floor(scrollOffset + visibleRows - y / rowHeight);
+        return item >= 0 && item < dataSource.getItemCount() ? item : -1;
+    }
+
+    /**
+     * Builds the rows whose text changed, and the box catching clicks.
+     */
+    @Override
+    protected void refresh()
+    {
+        for (Label row : rows)
+        {
+            row.validate();
+        }
+
+        hitGeometry = MeshUtils.setHitGeometry(hitGeometry, getMenuFont().isExtruded(), getLocalWidth(), getLocalHeight(), getLocalDepth());
+        if (getMenuFont().isExtruded())
+        {
+            // The box goes from -1 to 1: halve it, and move it over the list,
+            // so that it catches no click around it.
+            hitGeometry.setLocalScale(getLocalWidth() / 2, getLocalHeight() / 2, getLocalDepth());
+            hitGeometry.setLocalTranslation(getLocalWidth() / 2, getLocalHeight() / 2, 0);
+        }
+        attachChild(hitGeometry);
+    }
+
+    @Override
+    protected boolean canRefresh()
+    {
+        return getMenuFont() != null;
+    }
+
+    /**
+     * Invalidating the list rebuilds all its rows (e.g., when the font
+     * changes). Scrolling only rebuilds the rows that changed.
+     */
+    @Override
+    public void invalidate()
+    {
+        for (Label row : rows)
+        {
+            row.invalidate();
+        }
+        super.invalidate();
+    }
+
+    /**
+     * A row changed: build it on the next validation.
+     */
+    @Override
+    void childInvalidated(MenuElement child)
+    {
+        markInvalid();
+    }
+
+    @Override
+    void styleChanged()
+    {
+        super.styleChanged();
+        for (Label row : rows)
+        {
+            row.styleChanged();
+        }
+    }
+
+    @Override
+    protected void release()
+    {
+        for (Label row : rows)
+        {
+            row.release();
+        }
+        if (hitGeometry != null)
+        {
+            detachChild(hitGeometry);
+            hitGeometry = null;
+        }
+    }
+
+    @Override
+    public long getMemoryUsage()
+    {
+        long result = hitGeometry == null ? 0 : MeshUtils.getMemoryUsage(hitGeometry);
+        for (Label row : rows)
+        {
+            result += row.getMemoryUsage();
+        }
+        return result;
+    }
+
+    /**
+     * The rows are bound to the items again after loading.
+     */
+    @Override
+    protected boolean isBuilt(Spatial child)
+    {
+        return true;
+    }
+
+    /**
+     * Saves the list, and its data source if it is savable. Otherwise, the
+     * loaded list is empty until setDataSource() is called.
+     */
+    @Override
+    public void write(JmeExporter ex) throws IOException
+    {
+        super.write(ex);
+        OutputCapsule capsule = ex.getCapsule(this);
+        capsule.write(dataSource instanceof Savable ? (Savable) dataSource : null, "dataSource", null);
+        capsule.write(visibleRows, "visibleRows", 0);
+        capsule.write(width, "width", 0);
+        capsule.write(scrollOffset, "scrollOffset", 0);
+        capsule.write(selectedIndex, "selectedIndex", -1);
+    }
+
+    @Override
+    public void read(JmeImporter im) throws IOException
+    {
+        super.read(im);
+        InputCapsule capsule = im.getCapsule(this);
+        Savable savedSource = capsule.readSavable("dataSource", null);
+        dataSource = savedSource instanceof DataSource ? (DataSource) savedSource : emptySource;
+        visibleRows = capsule.readInt("visibleRows", 0);
+        width = capsule.readFloat("width", 0);
+        scrollOffset = capsule.readFloat("scrollOffset", 0);
+        selectedIndex = capsule.readInt("selectedIndex", -1);
+        createRows();
+    }
+
+    /**
+     * The rows move as the list scrolls.
+     */
+    @Override
+    protected boolean canBatch()
+    {
+        return false;
+    }
+
+    /**
+     * A press selects the item under the cursor, unless it turns into a drag.
+     */
+    @Override
+    public void processClick(boolean pressedOrReleased, Vector3f cursorPosition)
+    {
+        if (pressedOrReleased)
+        {
+            pressedIndex = getItemAt(cursorPosition.y);
+            pressY = cursorPosition.y;
+            pressOffset = scrollOffset;
+        }
+        else
+        {
+            if (enabled && pressedIndex != -1 && Math.abs(scrollOffset - pressOffset) < clickThreshold)
+            {
+                selectedIndex = pressedIndex;
+                fireAction(selectedIndex);
+            }
+            pressedIndex = -1;
+        }
+    }
+
+    /**
+     * Dragging scrolls the list along with the cursor.
+     */
+    @Override
+    public void processDrag(Vector3f cursorPosition)
+    {
+        scrollTo(pressOffset + (cursorPosition.y - pressY) / rowHeight);
+    }
+
+    @Override
+    public void processWheel(int step)
+    {
+        scrollTo(FastMath.floor(scrollOffset) - step);
+    }
+
+    /**
+     * Up and down move the selection, as long as there is an item there.
+     */
+    @Override
+    public boolean processKey(NavigationGraph.Direction direction)
+    {
+        int index;
+        switch (direction)
+        {
+        case UP:
+            index = selectedIndex - 1;
+            break;
+        case DOWN:
+            index = selectedIndex + 1;
+            break;
+        default:
+            return false;
+        }
+
+        if (index < 0 || index >= dataSource.getItemCount())
+        {
+            return false;
+        }
+        setSelectedIndex(index);
+        return true;
+    }
+
+    @Override
+    public float getLocalWidth()
+    {
+        return width;
+    }
+
+    @Override
+    public float getLocalHeight()
+    {
+        return visibleRows * rowHeight;
+    }
+
+    @Override
+    public float getLocalDepth()
+    {
+        Jme3DFont font = getMenuFont();
+        return font != null && font.isExtruded() ? Jme3DFont.extrusionDepth : 0;
+    }
+}
@@ -1,201 +1,449 @@
-package menu.elements;
-
-import com.jme3.input.controls.ActionListener;
-import com.jme3.material.Material;
-import com.jme3.math.Vector3f;
-import com.jme3.scene.Geometry;
-import java.util.ArrayList;
-import java.util.List;
-import menu.utils.Jme3DFont;
-import meshes.Wedge;
-
-/**
- * A ValueChooser lets the user select, using arrows on either side to select
- * values.
- */
-public class ValueChooser<T> extends Label
-{
-    private int index = -1;
-    private List<T> values;
-    private boolean vertical;
-    private ArrayList<ActionListener> actionListeners = new ArrayList<>();
-    private static final float wedgeSize = 0.45f;
-    private static final float spacing = 0.05f;
-
-    public ValueChooser(Jme3DFont font, List<T> values, boolean vertical)
-    {
-        super("");
-        setName("ValueChooser");
-        if (values == null)
-        {
-            throw new NullPointerException();
-        }
-
-        this.vertical = vertical;
-        this.values = values;
-
-        // If at least one value is given, set the first:
-        if (!values.isEmpty())
-        {
-            index = 0;
-        }
-    }
-
-    /**
-     * Adds an action listener to this button, that will be fired at each click.
-     */
-    public void addActionListener(ActionListener listener)
-    {
-        actionListeners.add(listener);
-    }
-
-    @Override
-    public void refresh()
-    {
-        // Delete everything, not just the label.
-        detachAllChildren();
-
-        // Set the selection as text:
-        this.text = values.get(index).toString();
-        super.refresh();
-
-        // Create the triangles.
-        Geometry wedgeGeometry1, wedgeGeometry2;
-        boolean extruded = getMenuFont().isExtruded();
-
-        float height = super.getLocalHeight();
-        float width = super.getLocalWidth();
-        float extrusion = extruded ? getLocalDepth() : 0;
-
-        if (vertical)
-        {
-            // Todo: make the wedges follow the mouse :)
-            // For a vertical chooser (arrows on top and bottom) :
-            Wedge wedge = new Wedge(Wedge.Orientation.DOWN, new Vector3f(wedgeSize / 3, wedgeSize, extrusion), extruded);
-            wedgeGeometry1 = new Geometry("wedge1", wedge);
-            wedge = new Wedge(Wedge.Orientation.UP, new Vector3f(wedgeSize / 3, wedgeSize, extrusion), extruded);
-            wedgeGeometry2 = new Geometry("wedge2", wedge);
-
-            // Place the triangles and move the text node up.
-            wedgeGeometry1.setLocalTranslation(0, wedgeSize / 3, 0);
-            stringNode.setLocalTranslation(0, wedgeSize / 3 + spacing, 0);
-            wedgeGeometry2.setLocalTranslation(0, wedgeSize / 3 + spacing + height + spacing, 0);
-        }
-        else
-        {
-            // For a Horizontal chooser (arrows on left and right) :
-            Wedge w = new Wedge(Wedge.Orientation.LEFT, new Vector3f(wedgeSize / 3, wedgeSize, extrusion), extruded);
-            wedgeGeometry1 = new Geometry("wedge1", w);
-            w = new Wedge(Wedge.Orientation.RIGHT, new Vector3f(wedgeSize / 3, wedgeSize, extrusion), extruded);
-            wedgeGeometry2 = new Geometry("wedge2", w);
-
-            wedgeGeometry1.setLocalTranslation(0, 0, 0);
-            stringNode.setLocalTranslation(wedgeSize / 3 + spacing, 0, 0);
-            wedgeGeometry2.setLocalTranslation(wedgeSize / 3 + spacing + width + spacing, 0, 0);
-        }
-        Material mat = getMenuMaterial();
-        wedgeGeometry1.setMaterial(mat);
-        wedgeGeometry2.setMaterial(mat);
-
-        attachChild(wedgeGeometry1);
-        attachChild(wedgeGeometry2);
-    }
-
-    @Override
-    public void processClick(boolean pressedOrReleased, Vector3f cursorPosition)
-    {
-        if (pressedOrReleased)
-        {
-            if (vertical)
-            {
-                if (cursorPosition.y > getLocalHeight() / 2)
-                {
-                    setIndex(index + 1);
-                }
-                else
-                {
-                    setIndex(index - 1);
-                }
-            }
-            else
-            {
-                if (cursorPosition.x > getLocalWidth() / 2)
-                {
-                    setIndex(index + 1);
-                }
-                else
-                {
-                    setIndex(index - 1);
-                }
-            }
-
-            // If the button has been released, and the button is enabled:
-            if (enabled && !pressedOrReleased)
-            {
-                for (ActionListener listener : actionListeners)
-                {
-                    listener.onAction(name, true, queueDistance);
-                }
-            }
-            // index++; refresh();
-        }
-
-        // Also fire action listeners.
-        // If the button has been released, and the button is enabled:
-        if (enabled && !pressedOrReleased)
-        {
-            for (ActionListener listener : actionListeners)
-            {
-                listener.onAction(name, true, queueDistance);
-            }
-        }
-    }
-
-    /**
-     * Sets the given index as selected.
-     */
-    public void setIndex(int index)
-    {
-        if (index < 0)
-        {
-            index = index % values.size() + values.size();
-        }
-
-        this.index = index % values.size();
-        refresh();
-    }
-
-    /* @Override
-     public void setMaterial(Material mat)
-     {
-     super.setMaterial(mat);
-
-     //  wedge1.setMaterial(mat);
-     // wedge2.setMaterial(mat);
-     }*/
-    @Override
-    public float getLocalWidth()
-    {
-        if (vertical)
-        {
-            return super.getLocalHeight();
-        }
-        else
-        {
-            return 2 * wedgeSize / 3 + 2 * spacing + super.getLocalWidth();
-        }
-    }
-
-    @Override
-    public float getLocalHeight()
-    {
-        if (vertical)
-        {
-            return 2 * wedgeSize / 3 + 2 * spacing + super.getLocalHeight();
-        }
-        else
-        {
-            return super.getLocalWidth();
-        }
-    }
-}
+package menu.elements;
+
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import com.jme3.material.Material;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import menu.utils.Jme3DFont;
+import menu.utils.MeshUtils;
+import meshes.Wedge;
+
+/**
+ * A ValueChooser lets the user select, using arrows on either side to select
+ * values. The text nodes of the last values shown are kept, and the ones of
+ * the values next to the selection are built in the background, so that
+ * changing the value only swaps nodes.
+ */
+public class ValueChooser<T> extends Label
+{
+    private int index = -1;
+    private List<T> values;
+    private boolean vertical;
+    private static final float wedgeSize = 0.45f;
+    private static final float spacing = 0.05f;
+    // The maximum number of value nodes kept.
+    private static final int cacheSize = 16;
+    private Geometry wedgeGeometry1, wedgeGeometry2;
+    // If false, only the value changed since the last refresh.
+    private boolean rebuild = true;
+    // The text nodes of the values shown recently, by index.
+    private LinkedHashMap<Integer, Node> valueNodes = new LinkedHashMap<Integer, Node>(cacheSize, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Node> eldest)
+        {
+            return size() > cacheSize;
+        }
+    };
+    // The neighbour value nodes being built in the background.
+    private Future<Node[]> prefetch = null;
+    private int prefetchIndices[];
+
+    public ValueChooser(Jme3DFont font, List<T> values, boolean vertical)
+    {
+        super("");
+        setName("ValueChooser");
+        if (values == null)
+        {
+            throw new NullPointerException();
+        }
+
+        this.vertical = vertical;
+        this.values = values;
+
+        // If at least one value is given, set the first:
+        if (!values.isEmpty())
+        {
+            index = 0;
+            text = values.get(index).toString();
+        }
+    }
+
+    /**
+     * Only used when loading.
+     */
+    public ValueChooser()
+    {
+        this(null, new ArrayList<T>(), false);
+    }
+
+    /**
+     * Only builds the arrows again if the whole element was invalidated, e.g.
+     * if the font changed. If only the value changed, its text node is swapped.
+     */
+    @Override
+    public void refresh()
+    {
+        if (rebuild || wedgeGeometry1 == null)
+        {
+            // Delete everything, including the values built for the old font.
+            detachAllChildren();
+            valueNodes.clear();
+            if (prefetch != null)
+            {
+                prefetch.cancel(false);
+                prefetch = null;
+            }
+
+            createWedges();
+            rebuild = false;
+        }
+        else if (stringNode != null)
+        {
+            detachChild(stringNode);
+        }
+
+        stringNode = getValueNode(index);
+
+        // If there is a material set, apply it.
+        Material mat = getMenuMaterial();
+        if (mat != null)
+        {
+            setMaterial(mat);
+        }
+        attachChild(stringNode);
+
+        placeValue();
+        prefetchNeighbours();
+    }
+
+    /**
+     * Creates the arrows on either side of the value.
+     */
+    private void createWedges()
+    {
+        boolean extruded = getMenuFont().isExtruded();
+        float extrusion = extruded ? getLocalDepth() : 0;
+        // The wedge meshes are shared by all the choosers of that size.
+        Vector3f bounds = new Vector3f(wedgeSize / 3, wedgeSize, extrusion);
+
+        if (vertical)
+        {
+            // Todo: make the wedges follow the mouse :)
+            // For a vertical chooser (arrows on top and bottom) :
+            wedgeGeometry1 = new Geometry("wedge1", MeshUtils.getWedge(Wedge.Orientation.DOWN, bounds, extruded));
+            wedgeGeometry2 = new Geometry("wedge2", MeshUtils.getWedge(Wedge.Orientation.UP, bounds, extruded));
+        }
+        else
+        {
+            // For a Horizontal chooser (arrows on left and right) :
+            wedgeGeometry1 = new Geometry("wedge1", MeshUtils.getWedge(Wedge.Orientation.LEFT, bounds, extruded));
+            wedgeGeometry2 = new Geometry("wedge2", MeshUtils.getWedge(Wedge.Orientation.RIGHT, bounds, extruded));
+        }
+        Material mat = getMenuMaterial();
+        wedgeGeometry1.setMaterial(mat);
+        wedgeGeometry2.setMaterial(mat);
+
+        attachChild(wedgeGeometry1);
+        attachChild(wedgeGeometry2);
+    }
+
+    /**
+     * Places the value text and the arrows around it.
+     */
+    private void placeValue()
+    {
+        float height = super.getLocalHeight();
+        float width = super.getLocalWidth();
+
+        if (vertical)
+        {
+            // Place the triangles and move the text node up.
+            wedgeGeometry1.setLocalTranslation(0, wedgeSize / 3, 0);
+            stringNode.setLocalTranslation(0, wedgeSize / 3 + spacing, 0);
+            wedgeGeometry2.setLocalTranslation(0, wedgeSize / 3 + spacing + height + spacing, 0);
+        }
+        else
+        {
+            wedgeGeometry1.setLocalTranslation(0, 0, 0);
+            stringNode.setLocalTranslation(wedgeSize / 3 + spacing, 0, 0);
+            wedgeGeometry2.setLocalTranslation(wedgeSize / 3 + spacing + width + spacing, 0, 0);
+        }
+    }
+
+    /**
+     * Returns the text node of the given value, from the cache if possible.
+     */
+    private Node getValueNode(int index)
+    {
+        if (index == -1)
+        {
+            return getMenuFont().getStringNode(text);
+        }
+
+        collectPrefetch();
+        Node result = valueNodes.get(index);
+        if (result == null)
+        {
+            result = getMenuFont().getStringNode(text);
+            valueNodes.put(index, result);
+        }
+        return result;
+    }
+
+    /**
+     * Builds the text nodes of the previous and next values in the background,
+     * if they are not in the cache yet.
+     */
+    private void prefetchNeighbours()
+    {
+        if (values.size() < 2 || (prefetch != null && !prefetch.isDone()))
+        {
+            return;
+        }
+        collectPrefetch();
+
+        final int indices[] = new int[]
+        {
+            (index + values.size() - 1) % values.size(), (index + 1) % values.size()
+        };
+        // The values are converted to text here, not on the background thread.
+        final String texts[] = new String[indices.length];
+        boolean needed = false;
+        for (int i = 0; i < indices.length; i++)
+        {
+            if (!valueNodes.containsKey(indices[i]))
+            {
+                texts[i] = values.get(indices[i]).toString();
+                needed = true;
+            }
+        }
+        if (!needed)
+        {
+            return;
+        }
+
+        final Jme3DFont font = getMenuFont();
+        prefetchIndices = indices;
+        prefetch = Panel.getPreparationExecutor().submit(new Callable<Node[]>()
+        {
+            @Override
+            public Node[] call()
+            {
+                Node nodes[] = new Node[texts.length];
+                for (int i = 0; i < texts.length; i++)
+                {
+                    if (texts[i] != null)
+                    {
+                        nodes[i] = font.getStringNode(texts[i]);
+                    }
+                }
+                return nodes;
+            }
+        });
+    }
+
+    /**
+     * Adds the value nodes built in the background to the cache, if they are
+     * ready.
+     */
+    private void collectPrefetch()
+    {
+        if (prefetch == null || !prefetch.isDone())
+        {
+            return;
+        }
+
+        try
+        {
+            Node nodes[] = prefetch.get();
+            for (int i = 0; i < nodes.length; i++)
+            {
+                if (nodes[i] != null && !valueNodes.containsKey(prefetchIndices[i]))
+                {
+                    valueNodes.put(prefetchIndices[i], nodes[i]);
+                }
+            }
+        }
+        catch (InterruptedException | ExecutionException ex)
+        {
+            // The nodes will be built when needed.
+        }
+        prefetch = null;
+    }
+
+    /**
+     * Invalidating the chooser builds everything again. Changing the value
+     * only swaps its text node.
+     */
+    @Override
+    public void invalidate()
+    {
+        rebuild = true;
+        super.invalidate();
+    }
+
+    @Override
+    protected void release()
+    {
+        super.release();
+        wedgeGeometry1 = null;
+        wedgeGeometry2 = null;
+        valueNodes.clear();
+    }
+
+    /**
+     * Also counts the cached values not shown.
+     */
+    @Override
+    public long getMemoryUsage()
+    {
+        long result = super.getMemoryUsage();
+        for (Node node : valueNodes.values())
+        {
+            if (node != stringNode)
+            {
+                result += MeshUtils.getMemoryUsage(node);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void processClick(boolean pressedOrReleased, Vector3f cursorPosition)
+    {
+        if (pressedOrReleased)
+        {
+            if (vertical)
+            {
+                if (cursorPosition.y > getLocalHeight() / 2)
+                {
+                    setIndex(index + 1);
+                }
+                else
+                {
+                    setIndex(index - 1);
+                }
+            }
+            else
+            {
+                if (cursorPosition.x > getLocalWidth() / 2)
+                {
+                    setIndex(index + 1);
+                }
+                else
+                {
+                    setIndex(index - 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the given index as selected, and fires a value change event with
+     * the value selected.
+     */
+    public void setIndex(int index)
+    {
+        if (index < 0)
+        {
+            index = index % values.size() + values.size();
+        }
+
+        this.index = index % values.size();
+        // Set the selection as text:
+        this.text = values.get(this.index).toString();
+        markInvalid();
+
+        fireValueChanged(values.get(this.index));
+    }
+
+    /**
+     * Same as setIndex(), from any thread (see MenuElement.post()).
+     */
+    public void postIndex(int index)
+    {
+        post(Property.INDEX, index);
+    }
+
+    @Override
+    void applyProperty(Property property, Object value)
+    {
+        if (property == Property.INDEX)
+        {
+            setIndex((Integer) value);
+        }
+        else
+        {
+            super.applyProperty(property, value);
+        }
+    }
+
+    /**
+     * Saves the values as their text: a loaded chooser holds strings.
+     */
+    @Override
+    public void write(JmeExporter ex) throws IOException
+    {
+        super.write(ex);
+        String texts[] = new String[values.size()];
+        for (int i = 0; i < texts.length; i++)
+        {
+            texts[i] = values.get(i).toString();
+        }
+
+        OutputCapsule capsule = ex.getCapsule(this);
+        capsule.write(texts, "values", null);
+        capsule.write(vertical, "vertical", false);
+        capsule.write(index, "index", -1);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void read(JmeImporter im) throws IOException
+    {
+        super.read(im);
+        InputCapsule capsule = im.getCapsule(this);
+        values = (List<T>) new ArrayList<Object>(Arrays.asList(capsule.readStringArray("values", new String[0])));
+        vertical = capsule.readBoolean("vertical", false);
+        index = capsule.readInt("index", -1);
+        rebuild = true;
+    }
+
+    /* @Override
+     public void setMaterial(Material mat)
+     {
+     super.setMaterial(mat);
+
+     //  wedge1.setMaterial(mat);
+     // wedge2.setMaterial(mat);
+     }*/
+    @Override
+    public float getLocalWidth()
+    {
+        if (vertical)
+        {
+            return super.getLocalHeight();
+        }
+        else
+        {
+            return 2 * wedgeSize / 3 + 2 * spacing + super.getLocalWidth();
+        }
+    }
+
+    @Override
+    public float getLocalHeight()
+    {
+        if (vertical)
+        {
+            return 2 * wedgeSize / 3 + 2 * spacing + super.getLocalHeight();
+        }
+        else
+        {
+            return super.getLocalWidth();
+        }
+    }
+}
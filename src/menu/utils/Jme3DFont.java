@@ -1,276 +1,469 @@
-package menu.utils;
-
-import com.jme3.math.Vector3f;
-import com.jme3.scene.Geometry;
-import com.jme3.scene.Mesh;
-import com.jme3.scene.Node;
-import com.jme3.scene.VertexBuffer;
-import com.jme3.util.BufferUtils;
-import java.awt.Font;
-import java.awt.FontFormatException;
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import javax.media.j3d.Font3D;
-import javax.media.j3d.FontExtrusion;
-import javax.media.j3d.GeometryArray;
-
-/**
- * This class generates and lazyloads meshes corresponding to glyphs. One
- * instance corresponds to one Font.
- */
-public class Jme3DFont
-{
-    // Usual fonts.
-    public final static Jme3DFont standardExtrudedFont = new Jme3DFont("Arial", true);
-    public final static Jme3DFont standardFlatFont = new Jme3DFont("Arial", false);
-    // The ratio used to increase distance between characters.
-    public final static float spacingRatio = 1.05f;
-    // Default extrusion depth
-    public final static float extrusionDepth = 0.2f;
-    // Default extrusion depth
-    public final static int defaultHeight = 1;
-    // The Java3D 3DFont.
-    private Font3D font3D;
-    // This map allows to lasyload meshes, holding one mesh per character.
-    private Map<Character, Mesh> meshesMap = new HashMap<>();
-    // This map stores each character (3D, hence the vector3f) size.
-    private Map<Character, Vector3f> sizeMap = new HashMap<>();
-    // Determines wether this font is extruded or flat.
-    private boolean extruded;
-
-    /**
-     * Convenience method to load a font from its name.
-     *
-     * @param fontName The name of the font used (E.g. "Arial").
-     * @param extruded If true, the mesh will be a true 3D letter, else it will
-     * be flat and only contain the front of the letter.
-     *
-     */
-    public Jme3DFont(String fontName, boolean extruded)
-    {
-        // By default, the font has a size of 1 (1 world unit high.)
-        this(new Font(fontName, Font.PLAIN, defaultHeight), extruded);
-    }
-
-    /**
-     * Creates a FontToMesh from a java font.
-     *
-     * @param font The java.awt font to use.
-     * @param extruded If true, the mesh will be a true 3D letter, else it will
-     * be flat and only contain the front of the letter.
-     *
-     */
-    public Jme3DFont(Font font, boolean extruded)
-    {
-        font3D = new Font3D(font,
-                new FontExtrusion());
-        this.extruded = extruded;
-
-        // For the character ' ', set a null geometry...
-        meshesMap.put(' ', null);
-        // ... With a non-null size
-        sizeMap.put(' ', new Vector3f(defaultHeight * 0.45f, 0, 0));
-    }
-
-    /**
-     * Gets the mesh for every character, then returns the global geometry, for
-     * the given string.
-     */
-    public Node getStringNode(String string)
-    {
-        Node node = new Node();
-
-        float offset = 0;
-        for (char c : string.toCharArray())
-        {
-            // For each glyph, retrieve the mesh, space it a bit, add it to the geometry.
-            Geometry glyphGeometry = new Geometry("Glyph");
-
-            Mesh mesh = getGlyphMesh(c);
-            if (mesh != null)
-            {
-                glyphGeometry.setMesh(mesh);
-                glyphGeometry.setLocalTranslation(offset, 0, 0);
-
-                node.attachChild(glyphGeometry);
-            }
-
-            // Increment the offset by the character width, plus a bit.
-            offset += sizeMap.get(c).x * spacingRatio;
-        }
-        return node;
-    }
-
-    /**
-     * Creates if needed, and returns the mesh for the given glyph.
-     */
-    public Mesh getGlyphMesh(char c)
-    {
-        // First check if it has already been computed.
-        if (meshesMap.containsKey(c))
-        {
-            // If we found null, there's no mesh representation; fill the size anyway.
-            return meshesMap.get(c);
-        }
-
-        // If not, create it. First retrieve all data:
-        GeometryArray geometry = font3D.getGlyphGeometry(c);
-        float coords[] = new float[geometry.getValidVertexCount() * 3];
-        geometry.getCoordinates(0, coords);
-        float normalCoords[] = new float[geometry.getValidVertexCount() * 3];
-        geometry.getNormals(0, normalCoords);
-
-        // Now, coords contains x,y,z for each vertex of each triangle; hence, 9 floats per triangle.
-        // Separate those coordinates into 3 lists:
-        ArrayList<Vector3f> frontVertices = new ArrayList<>();
-        ArrayList<Vector3f> sideVertices = new ArrayList<>();
-        ArrayList<Vector3f> backVertices = new ArrayList<>();
-        // Keep track of side normals - if needed - and only them,
-        // since front and back are along the Z axis.
-        ArrayList<Vector3f> sideNormals = new ArrayList<>();
-
-        // For each triangle (Triplet of points, hence 9-plet of coord): 
-        for (int i = 0; i < coords.length; i += 9)
-        {
-            if (coords[i + 2] > 0.1f && coords[i + 5] > 0.1f && coords[i + 8] > 0.1f)
-            {
-                // If all the Zs are close to 0, put the triangle in the front category.
-                frontVertices.add(new Vector3f(coords[i], coords[i + 1], coords[i + 2]));
-                frontVertices.add(new Vector3f(coords[i + 3], coords[i + 4], coords[i + 5]));
-                frontVertices.add(new Vector3f(coords[i + 6], coords[i + 7], coords[i + 8]));
-
-            }
-            else if (extruded)
-            {
-                if (coords[i + 2] < 0.1f && coords[i + 5] < 0.1f && coords[i + 8] < 0.1f)
-                {
-                    // If all the Zs are not close to 0, put the triangle in the back category.
-                    backVertices.add(new Vector3f(coords[i], coords[i + 1], coords[i + 2]));
-                    backVertices.add(new Vector3f(coords[i + 3], coords[i + 4], coords[i + 5]));
-                    backVertices.add(new Vector3f(coords[i + 6], coords[i + 7], coords[i + 8]));
-                }
-                else
-                {
-                    // If the Zs are not equal, put the triangle in the side category.
-                    sideVertices.add(new Vector3f(coords[i], coords[i + 1], coords[i + 2]));
-                    sideVertices.add(new Vector3f(coords[i + 3], coords[i + 4], coords[i + 5]));
-                    sideVertices.add(new Vector3f(coords[i + 6], coords[i + 7], coords[i + 8]));
-
-                    // Also save the normals.
-                    sideNormals.add(new Vector3f(normalCoords[i], normalCoords[i + 1], normalCoords[i + 2]));
-                    sideNormals.add(new Vector3f(normalCoords[i + 3], normalCoords[i + 4], normalCoords[i + 5]));
-                    sideNormals.add(new Vector3f(normalCoords[i + 6], normalCoords[i + 7], normalCoords[i + 8]));
-                }
-            }
-        }
-        // Register Normals.
-        ArrayList<Vector3f> normals = new ArrayList<>();
-        // For the front, put 0,0,1.
-        for (int i = 0; i < frontVertices.size(); i++)
-        {
-            normals.add(Vector3f.UNIT_Z);
-        }
-
-        if (extruded)
-        {
-            // Add the side and back vertices along with the front ones.
-            frontVertices.addAll(sideVertices);
-            frontVertices.addAll(backVertices);
-
-            // Save all normals together too.
-            // Side normals:
-            normals.addAll(sideNormals);
-
-            // For the back, put 0,0,-1.
-            Vector3f backNormal = new Vector3f(0, 0, -1f);
-            for (int i = 0; i < backVertices.size(); i++)
-            {
-                normals.add(backNormal);
-            }
-        }
-
-        // Now turn all that into a mesh.
-        ArrayList<Integer> triangles = MeshUtils.trianglesFromVerticesList(frontVertices, normals);
-        Mesh mesh = new Mesh();
-
-        // Vertices. 
-        Vector3f[] verticesArray = frontVertices.toArray(new Vector3f[0]);
-
-        // If the font is no extruded, push it back a little to make it
-        // match the z=0 plane.
-        if (!extruded)
-        {
-            for (Vector3f v : verticesArray)
-            {
-               v.z -= extrusionDepth;
-            }
-        }
-        // Normals
-        Vector3f[] normalsArray = normals.toArray(new Vector3f[0]);
-
-        // Save max positions as the size.
-        Vector3f charSize = new Vector3f();
-        for (Vector3f v : verticesArray)
-        {
-            charSize.x = Math.max(charSize.x, v.x);
-            charSize.y = Math.max(charSize.y, v.y);
-            charSize.z = Math.max(charSize.z, v.z);
-        }
-
-        // Drop the triangles to an array.
-        int[] triangleList = new int[triangles.size()];
-        for (int j = 0; j < triangles.size(); j++)
-        {
-            triangleList[j] = triangles.get(j);
-        }
-
-        mesh.setBuffer(VertexBuffer.Type.Position, 3, BufferUtils.createFloatBuffer(verticesArray));
-        mesh.setBuffer(VertexBuffer.Type.Normal, 3, BufferUtils.createFloatBuffer(normalsArray));
-        mesh.setBuffer(VertexBuffer.Type.Index, 3, BufferUtils.createIntBuffer(triangleList));
-        mesh.updateBound();
-        mesh.setStatic();
-
-        // Save the mesh for later use.
-        meshesMap.put(c, mesh);
-        // Also save the character width.
-        sizeMap.put(c, charSize);
-        return mesh;
-    }
-
-    /**
-     * Load font from a resource file, ie in a source package.
-     */
-    public static Font loadTtfFont(String name)
-    {
-        Font f = null;
-        try
-        {
-            InputStream is = Jme3DFont.class.getResourceAsStream(name);
-            f = Font.createFont(Font.TRUETYPE_FONT, is);
-        }
-        catch (FontFormatException | IOException ex)
-        {
-            Logger.getLogger(Jme3DFont.class.getName()).log(Level.SEVERE, null, ex);
-        }
-
-        return f;
-    }
-
-    public Vector3f getGlyphSize(char c)
-    {
-        return sizeMap.get(c);
-    }
-
-    /**
-     * @return the isExtruded
-     */
-    public boolean isExtruded()
-    {
-        return extruded;
-    }
-}
+package menu.utils;
+
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import com.jme3.export.Savable;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.media.j3d.Font3D;
+import javax.media.j3d.FontExtrusion;
+import javax.media.j3d.GeometryArray;
+
+/**
+ * This class generates and lazyloads meshes corresponding to glyphs. One
+ * instance corresponds to one Font. Glyphs can be loaded from any thread (see
+ * prepare()). A saved font holds the glyph meshes built so far, so that a
+ * loaded menu doesn't build them again.
+ */
+public class Jme3DFont implements Savable
+{
+    // The fonts shared by name, style, size and extrusion (see get()). Every
+    // font built registers itself, unless one is already shared.
+    private static final Map<String, Jme3DFont> sharedFonts = new HashMap<>();
+    // Usual fonts.
+    public final static Jme3DFont standardExtrudedFont = new Jme3DFont("Arial", true);
+    public final static Jme3DFont standardFlatFont = new Jme3DFont("Arial", false);
+    // The ratio used to increase distance between characters.
+    public final static float spacingRatio = 1.05f;
+    // Default extrusion depth
+    public final static float extrusionDepth = 0.2f;
+    // Default extrusion depth
+    public final static int defaultHeight = 1;
+    // The name, style and size of the java font, and the Java3D 3DFont. A font
+    // that isn't installed (e.g. loaded from a file) can't be built again
+    // from its name: once loaded, it only has its saved glyphs.
+    private String fontName;
+    private int fontStyle;
+    private float fontSize;
+    private boolean installed;
+    private Font3D font3D;
+    // This map allows to lasyload meshes, holding one mesh per character.
+    private Map<Character, Mesh> meshesMap = new HashMap<>();
+    // This map stores each character (3D, hence the vector3f) size.
+    private Map<Character, Vector3f> sizeMap = new HashMap<>();
+    // Determines wether this font is extruded or flat.
+    private boolean extruded;
+
+    /**
+     * Convenience method to load a font from its name.
+     *
+     * @param fontName The name of the font used (E.g. "Arial").
+     * @param extruded If true, the mesh will be a true 3D letter, else it will
+     * be flat and only contain the front of the letter.
+     *
+     */
+    public Jme3DFont(String fontName, boolean extruded)
+    {
+        // By default, the font has a size of 1 (1 world unit high.)
+        this(new Font(fontName, Font.PLAIN, defaultHeight), extruded);
+    }
+
+    /**
+     * Creates a FontToMesh from a java font.
+     *
+     * @param font The java.awt font to use.
+     * @param extruded If true, the mesh will be a true 3D letter, else it will
+     * be flat and only contain the front of the letter.
+     *
+     */
+    public Jme3DFont(Font font, boolean extruded)
+    {
+        fontName = font.getName();
+        fontStyle = font.getStyle();
+        fontSize = font.getSize2D();
+        // AWT falls back on another font for the names it doesn't know.
+        installed = new Font(fontName, fontStyle, 1).getFontName().equals(font.getFontName());
+        font3D = new Font3D(font,
+                new FontExtrusion());
+        this.extruded = extruded;
+        addSpace();
+
+        // Share it, so that a saved menu using it gets it back when loaded.
+        synchronized (Jme3DFont.class)
+        {
+            if (!sharedFonts.containsKey(getKey()))
+            {
+                sharedFonts.put(getKey(), this);
+            }
+        }
+    }
+
+    private void addSpace()
+    {
+        // For the character ' ', set a null geometry...
+        meshesMap.put(' ', null);
+        // ... With a non-null size
+        sizeMap.put(' ', new Vector3f(fontSize * 0.45f, 0, 0));
+    }
+
+    private String getKey()
+    {
+        return fontName + "|" + fontStyle + "|" + fontSize + (extruded ? "|extruded" : "|flat");
+    }
+
+    /**
+     * Only used when loading a font: see getSharedFont().
+     */
+    public Jme3DFont()
+    {
+    }
+
+    /**
+     * Returns the plain font of the given name and the default height, shared
+     * by all its users so that its glyphs are only built once. The standard
+     * fonts are returned for Arial.
+     */
+    public static synchronized Jme3DFont get(String fontName, boolean extruded)
+    {
+        Jme3DFont result = sharedFonts.get(fontName + "|" + Font.PLAIN + "|" + (float) defaultHeight + (extruded ? "|extruded" : "|flat"));
+        if (result == null)
+        {
+            // It registers itself.
+            result = new Jme3DFont(fontName, extruded);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the mesh for every character, then returns the global geometry, for
+     * the given string.
+     */
+    public Node getStringNode(String string)
+    {
+        Node node = new Node();
+
+        float offset = 0;
+        for (char c : string.toCharArray())
+        {
+            // For each glyph, retrieve the mesh, space it a bit, add it to the geometry.
+            Geometry glyphGeometry = new Geometry("Glyph");
+
+            Mesh mesh = getGlyphMesh(c);
+            if (mesh != null)
+            {
+                glyphGeometry.setMesh(mesh);
+                glyphGeometry.setLocalTranslation(offset, 0, 0);
+
+                node.attachChild(glyphGeometry);
+            }
+
+            // Increment the offset by the character width, plus a bit.
+            offset += getGlyphSize(c).x * spacingRatio;
+        }
+        return node;
+    }
+
+    /**
+     * Builds the meshes and sizes of all the glyphs of the given text, so that
+     * building the text node later is cheap. This can be called from a
+     * background thread.
+     */
+    public void prepare(String string)
+    {
+        for (char c : string.toCharArray())
+        {
+            getGlyphMesh(c);
+        }
+    }
+
+    /**
+     * Creates if needed, and returns the mesh for the given glyph.
+     */
+    public synchronized Mesh getGlyphMesh(char c)
+    {
+        // First check if it has already been computed.
+        if (meshesMap.containsKey(c))
+        {
+            // If we found null, there's no mesh representation; fill the size anyway.
+            return meshesMap.get(c);
+        }
+
+        // A loaded font that isn't installed can't build the glyphs it wasn't
+        // saved with: leave them blank.
+        if (font3D == null)
+        {
+            Logger.getLogger(Jme3DFont.class.getName()).log(Level.WARNING, "The font {0} isn''t installed: can''t build the glyph ''{1}''.", new Object[]
+            {
+                fontName, c
+            });
+            meshesMap.put(c, null);
+            sizeMap.put(c, sizeMap.get(' '));
+            return null;
+        }
+
+        // If not, create it. First retrieve all data:
+        GeometryArray geometry = font3D.getGlyphGeometry(c);
+        float coords[] = new float[geometry.getValidVertexCount() * 3];
+        geometry.getCoordinates(0, coords);
+        float normalCoords[] = new float[geometry.getValidVertexCount() * 3];
+        geometry.getNormals(0, normalCoords);
+
+        // Now, coords contains x,y,z for each vertex of each triangle; hence, 9 floats per triangle.
+        // Separate those coordinates into 3 lists:
+        ArrayList<Vector3f> frontVertices = new ArrayList<>();
+        ArrayList<Vector3f> sideVertices = new ArrayList<>();
+        ArrayList<Vector3f> backVertices = new ArrayList<>();
+        // Keep track of side normals - if needed - and only them,
+        // since front and back are along the Z axis.
+        ArrayList<Vector3f> sideNormals = new ArrayList<>();
+
+        // For each triangle (Triplet of points, hence 9-plet of coord): 
+        for (int i = 0; i < coords.length; i += 9)
+        {
+            if (coords[i + 2] > 0.1f && coords[i + 5] > 0.1f && coords[i + 8] > 0.1f)
+            {
+                // If all the Zs are close to 0, put the triangle in the front category.
+                frontVertices.add(new Vector3f(coords[i], coords[i + 1], coords[i + 2]));
+                frontVertices.add(new Vector3f(coords[i + 3], coords[i + 4], coords[i + 5]));
+                frontVertices.add(new Vector3f(coords[i + 6], coords[i + 7], coords[i + 8]));
+
+            }
+            else if (extruded)
+            {
+                if (coords[i + 2] < 0.1f && coords[i + 5] < 0.1f && coords[i + 8] < 0.1f)
+                {
+                    // If all the Zs are not close to 0, put the triangle in the back category.
+                    backVertices.add(new Vector3f(coords[i], coords[i + 1], coords[i + 2]));
+                    backVertices.add(new Vector3f(coords[i + 3], coords[i + 4], coords[i + 5]));
+                    backVertices.add(new Vector3f(coords[i + 6], coords[i + 7], coords[i + 8]));
+                }
+                else
+                {
+                    // If the Zs are not equal, put the triangle in the side category.
+                    sideVertices.add(new Vector3f(coords[i], coords[i + 1], coords[i + 2]));
+                    sideVertices.add(new Vector3f(coords[i + 3], coords[i + 4], coords[i + 5]));
+                    sideVertices.add(new Vector3f(coords[i + 6], coords[i + 7], coords[i + 8]));
+
+                    // Also save the normals.
+                    sideNormals.add(new Vector3f(normalCoords[i], normalCoords[i + 1], normalCoords[i + 2]));
+                    sideNormals.add(new Vector3f(normalCoords[i + 3], normalCoords[i + 4], normalCoords[i + 5]));
+                    sideNormals.add(new Vector3f(normalCoords[i + 6], normalCoords[i + 7], normalCoords[i + 8]));
+                }
+            }
+        }
+        // Register Normals.
+        ArrayList<Vector3f> normals = new ArrayList<>();
+        // For the front, put 0,0,1.
+        for (int i = 0; i < frontVertices.size(); i++)
+        {
+            normals.add(Vector3f.UNIT_Z);
+        }
+
+        if (extruded)
+        {
+            // Add the side and back vertices along with the front ones.
+            frontVertices.addAll(sideVertices);
+            frontVertices.addAll(backVertices);
+
+            // Save all normals together too.
+            // Side normals:
+            normals.addAll(sideNormals);
+
+            // For the back, put 0,0,-1.
+            Vector3f backNormal = new Vector3f(0, 0, -1f);
+            for (int i = 0; i < backVertices.size(); i++)
+            {
+                normals.add(backNormal);
+            }
+        }
+
+        // Now turn all that into a mesh.
+        ArrayList<Integer> triangles = MeshUtils.trianglesFromVerticesList(frontVertices, normals);
+        Mesh mesh = new Mesh();
+
+        // Vertices. 
+        Vector3f[] verticesArray = frontVertices.toArray(new Vector3f[0]);
+
+        // If the font is no extruded, push it back a little to make it
+        // match the z=0 plane.
+        if (!extruded)
+        {
+            for (Vector3f v : verticesArray)
+            {
+               v.z -= extrusionDepth;
+            }
+        }
+        // Normals
+        Vector3f[] normalsArray = normals.toArray(new Vector3f[0]);
+
+        // Save max positions as the size.
+        Vector3f charSize = new Vector3f();
+        for (Vector3f v : verticesArray)
+        {
+            charSize.x = Math.max(charSize.x, v.x);
+            charSize.y = Math.max(charSize.y, v.y);
+            charSize.z = Math.max(charSize.z, v.z);
+        }
+
+        // Drop the triangles to an array.
+        int[] triangleList = new int[triangles.size()];
+        for (int j = 0; j < triangles.size(); j++)
+        {
+            triangleList[j] = triangles.get(j);
+        }
+
+        mesh.setBuffer(VertexBuffer.Type.Position, 3, BufferUtils.createFloatBuffer(verticesArray));
+        mesh.setBuffer(VertexBuffer.Type.Normal, 3, BufferUtils.createFloatBuffer(normalsArray));
+        mesh.setBuffer(VertexBuffer.Type.Index, 3, BufferUtils.createIntBuffer(triangleList));
+        mesh.updateBound();
+        mesh.setStatic();
+
+        // Save the mesh for later use. It is shared by all the strings.
+        meshesMap.put(c, MeshUtils.share(mesh));
+        // Also save the character width.
+        sizeMap.put(c, charSize);
+        return mesh;
+    }
+
+    /**
+     * Load font from a resource file, ie in a source package.
+     */
+    public static Font loadTtfFont(String name)
+    {
+        Font f = null;
+        try
+        {
+            InputStream is = Jme3DFont.class.getResourceAsStream(name);
+            f = Font.createFont(Font.TRUETYPE_FONT, is);
+        }
+        catch (FontFormatException | IOException ex)
+        {
+            Logger.getLogger(Jme3DFont.class.getName()).log(Level.SEVERE, null, ex);
+        }
+
+        return f;
+    }
+
+    public synchronized Vector3f getGlyphSize(char c)
+    {
+        // The size is computed along with the mesh: make sure it is.
+        getGlyphMesh(c);
+        return sizeMap.get(c);
+    }
+
+    /**
+     * Returns the shared font (see get()) this font was saved from, after
+     * giving it the glyph meshes it doesn't have yet. If there is none yet,
+     * this font becomes the shared one: it is built again from its name if
+     * that font is installed, else it keeps its saved glyphs only.
+     */
+    public Jme3DFont getSharedFont()
+    {
+        Jme3DFont result;
+        synchronized (Jme3DFont.class)
+        {
+            result = sharedFonts.get(getKey());
+            if (result == null)
+            {
+                if (installed)
+                {
+                    synchronized (this)
+                    {
+                        font3D = new Font3D(new Font(fontName, fontStyle, 1).deriveFont(fontSize), new FontExtrusion());
+                    }
+                }
+                sharedFonts.put(getKey(), this);
+                return this;
+            }
+        }
+        if (result != this)
+        {
+            result.addGlyphs(this);
+        }
+        return result;
+    }
+
+    private synchronized void addGlyphs(Jme3DFont font)
+    {
+        for (Character c : font.meshesMap.keySet())
+        {
+            if (!meshesMap.containsKey(c))
+            {
+                meshesMap.put(c, font.meshesMap.get(c));
+                sizeMap.put(c, font.sizeMap.get(c));
+            }
+        }
+    }
+
+    /**
+     * Saves the name, style and size of the font, and its glyph meshes built
+     * so far. Each mesh is written once, however many texts use it.
+     */
+    @Override
+    public synchronized void write(JmeExporter ex) throws IOException
+    {
+        StringBuilder glyphs = new StringBuilder();
+        ArrayList<Mesh> meshes = new ArrayList<>();
+        float sizes[] = new float[meshesMap.size() * 3];
+        for (Map.Entry<Character, Mesh> entry : meshesMap.entrySet())
+        {
+            if (entry.getValue() != null)
+            {
+                Vector3f size = sizeMap.get(entry.getKey());
+                sizes[3 * meshes.size()] = size.x;
+                sizes[3 * meshes.size() + 1] = size.y;
+                sizes[3 * meshes.size() + 2] = size.z;
+                glyphs.append(entry.getKey());
+                meshes.add(entry.getValue());
+            }
+        }
+
+        OutputCapsule capsule = ex.getCapsule(this);
+        capsule.write(fontName, "fontName", null);
+        capsule.write(fontStyle, "fontStyle", Font.PLAIN);
+        capsule.write(fontSize, "fontSize", defaultHeight);
+        capsule.write(installed, "installed", true);
+        capsule.write(extruded, "extruded", false);
+        capsule.write(glyphs.toString(), "glyphs", "");
+        capsule.writeSavableArrayList(meshes, "meshes", null);
+        capsule.write(sizes, "sizes", null);
+    }
+
+    @Override
+    public synchronized void read(JmeImporter im) throws IOException
+    {
+        InputCapsule capsule = im.getCapsule(this);
+        fontName = capsule.readString("fontName", "Arial");
+        fontStyle = capsule.readInt("fontStyle", Font.PLAIN);
+        fontSize = capsule.readFloat("fontSize", defaultHeight);
+        installed = capsule.readBoolean("installed", true);
+        extruded = capsule.readBoolean("extruded", false);
+        addSpace();
+        String glyphs = capsule.readString("glyphs", "");
+        ArrayList<?> meshes = capsule.readSavableArrayList("meshes", new ArrayList<Mesh>());
+        float sizes[] = capsule.readFloatArray("sizes", new float[0]);
+        for (int i = 0; i < glyphs.length(); i++)
+        {
+            meshesMap.put(glyphs.charAt(i), MeshUtils.share((Mesh) meshes.get(i)));
+            sizeMap.put(glyphs.charAt(i), new Vector3f(sizes[3 * i], sizes[3 * i + 1], sizes[3 * i + 2]));
+        }
+    }
+
+    public String getName()
+    {
+        return fontName;
+    }
+
+    /**
+     * @return the isExtruded
+     */
+    public boolean isExtruded()
+    {
+        return extruded;
+    }
+}
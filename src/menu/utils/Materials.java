@@ -1,27 +1,48 @@
-package menu.utils;
-
-import com.jme3.asset.AssetManager;
-import com.jme3.material.Material;
-import com.jme3.material.RenderState;
-import com.jme3.math.ColorRGBA;
-
-public class Materials
-{
-    // A general-purpose invisible material.
-    public static Material invisibleMaterial = null;
-    public static Material transparentMaterial = null;
-
-    public static void initMaterials(AssetManager assetManager)
-    {
-        // If the materials haven't been loaded yet, load them.
-        if (invisibleMaterial == null)
-        {
-            invisibleMaterial = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
-            invisibleMaterial.getAdditionalRenderState().setFaceCullMode(RenderState.FaceCullMode.FrontAndBack);
-
-            transparentMaterial = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
-            transparentMaterial.setColor("Color", new ColorRGBA(1, 1, 1, 0.1f));
-            transparentMaterial.getAdditionalRenderState().setBlendMode(RenderState.BlendMode.Alpha);
-        }
-    }
-}
+package menu.utils;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.material.Material;
+import com.jme3.material.RenderState;
+import com.jme3.math.ColorRGBA;
+import java.awt.Color;
+
+public class Materials
+{
+    // A general-purpose invisible material.
+    public static Material invisibleMaterial = null;
+    public static Material transparentMaterial = null;
+    // A transparent material shared by all colored elements: their colors
+    // come from their vertices (see MeshUtils.getPaletteBox).
+    public static Material paletteMaterial = null;
+    // The number of colors in the palette.
+    public static final int paletteSize = 32;
+
+    public static void initMaterials(AssetManager assetManager)
+    {
+        // If the materials haven't been loaded yet, load them.
+        if (invisibleMaterial == null)
+        {
+            invisibleMaterial = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
+            invisibleMaterial.getAdditionalRenderState().setFaceCullMode(RenderState.FaceCullMode.FrontAndBack);
+
+            transparentMaterial = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
+            transparentMaterial.setColor("Color", new ColorRGBA(1, 1, 1, 0.1f));
+            transparentMaterial.getAdditionalRenderState().setBlendMode(RenderState.BlendMode.Alpha);
+
+            paletteMaterial = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
+            paletteMaterial.setBoolean("VertexColor", true);
+            paletteMaterial.getAdditionalRenderState().setBlendMode(RenderState.BlendMode.Alpha);
+        }
+    }
+
+    /**
+     * Returns the given color of the palette: bright, transparent colors
+     * going around the hue circle.
+     */
+    public static ColorRGBA getPaletteColor(int index)
+    {
+        // Use AWT color to convert from convenient HSB to RGB.
+        Color awtColor = new Color(Color.HSBtoRGB(index * 1f / paletteSize, 0.8f, 1f));
+        return new ColorRGBA(awtColor.getRed() * 1f / 255, awtColor.getGreen() * 1f / 255, awtColor.getBlue() * 1f / 255, 0.7f);
+    }
+}
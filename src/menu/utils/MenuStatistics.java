@@ -0,0 +1,123 @@
+package menu.utils;
+
+/**
+ * Counters describing the work done by a menu, to check how it scales. One
+ * instance is held by each panel; the times of a panel include those of its
+ * subpanels.
+ */
+public class MenuStatistics
+{
+    // Number of ray picks requested, and how many were answered from the cache.
+    private long picks = 0;
+    private long pickCacheHits = 0;
+    // Time spent (in nanoseconds) updating the panel, refreshing it and
+    // picking its elements.
+    private long updateTime = 0;
+    private long refreshTime = 0;
+    private long pickTime = 0;
+
+    /**
+     * Counts a pick, answered from the cache or not.
+     */
+    public void countPick(boolean cacheHit)
+    {
+        picks++;
+        if (cacheHit)
+        {
+            pickCacheHits++;
+        }
+    }
+
+    /**
+     * Adds the duration (in nanoseconds) of an update of the panel. It
+     * includes the refresh done on updating.
+     */
+    public void addUpdateTime(long nanoseconds)
+    {
+        updateTime += nanoseconds;
+    }
+
+    /**
+     * Adds the duration (in nanoseconds) of a refresh of the panel.
+     */
+    public void addRefreshTime(long nanoseconds)
+    {
+        refreshTime += nanoseconds;
+    }
+
+    /**
+     * Adds the duration (in nanoseconds) of a ray pick, answered from the
+     * cache or not.
+     */
+    public void addPickTime(long nanoseconds)
+    {
+        pickTime += nanoseconds;
+    }
+
+    /**
+     * @return the number of picks requested.
+     */
+    public long getPicks()
+    {
+        return picks;
+    }
+
+    /**
+     * @return the number of picks answered from the cache.
+     */
+    public long getPickCacheHits()
+    {
+        return pickCacheHits;
+    }
+
+    /**
+     * @return the fraction (from 0 to 1) of picks answered from the cache.
+     */
+    public float getPickCacheHitRate()
+    {
+        return picks == 0 ? 0f : pickCacheHits * 1f / picks;
+    }
+
+    /**
+     * @return the time (in nanoseconds) spent updating the panel.
+     */
+    public long getUpdateTime()
+    {
+        return updateTime;
+    }
+
+    /**
+     * @return the time (in nanoseconds) spent refreshing the panel.
+     */
+    public long getRefreshTime()
+    {
+        return refreshTime;
+    }
+
+    /**
+     * @return the time (in nanoseconds) spent picking.
+     */
+    public long getPickTime()
+    {
+        return pickTime;
+    }
+
+    /**
+     * Sets all counters back to 0.
+     */
+    public void reset()
+    {
+        picks = 0;
+        pickCacheHits = 0;
+        updateTime = 0;
+        refreshTime = 0;
+        pickTime = 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("picks: %d (%.1f%% from cache), update: %.3f ms, refresh: %.3f ms, picking: %.3f ms",
+                picks, 100 * getPickCacheHitRate(), updateTime / 1e6, refreshTime / 1e6, pickTime / 1e6);
+    }
+}
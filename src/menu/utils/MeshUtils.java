@@ -1,10 +1,152 @@
 package menu.utils;
 
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Matrix3f;
+import com.jme3.math.Matrix4f;
 import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.mesh.IndexBuffer;
+import com.jme3.scene.shape.Box;
+import com.jme3.scene.shape.Quad;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import meshes.Wedge;
 
 public class MeshUtils
 {
+    // The meshes shared by all the elements. They must never be modified:
+    // their geometries are moved and scaled instead. Fonts add their glyphs
+    // from whatever thread builds them.
+    private static final Set<Mesh> sharedMeshes = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Mesh, Boolean>()));
+    // A rough estimate of the memory used by a spatial itself (transforms,
+    // bounds, lists), whether it has a mesh or not.
+    private static final long spatialMemoryUsage = 400;
+    // The unit boxes of each palette color, lazily created.
+    private static final Mesh paletteBoxes[] = new Mesh[Materials.paletteSize];
+    private static Mesh unitBox = null;
+    private static Mesh unitQuad = null;
+    // The wedges, by shape.
+    private static final HashMap<String, Mesh> wedges = new HashMap<>();
+
+    /**
+     * Registers the mesh as shared, and returns it.
+     */
+    static Mesh share(Mesh mesh)
+    {
+        mesh.setStatic();
+        sharedMeshes.add(mesh);
+        return mesh;
+    }
+
+    /**
+     * Returns true if the mesh is shared through this class: it then belongs
+     * to no element in particular.
+     */
+    public static boolean isShared(Mesh mesh)
+    {
+        return sharedMeshes.contains(mesh);
+    }
+
+    /**
+     * Returns the shared box centered on the origin, from (-1,-1,-1) to
+     * (1,1,1).
+     */
+    public static Mesh getUnitBox()
+    {
+        if (unitBox == null)
+        {
+            unitBox = share(new Box(1, 1, 1));
+        }
+        return unitBox;
+    }
+
+    /**
+     * Returns the shared quad from (0,0) to (1,1).
+     */
+    public static Mesh getUnitQuad()
+    {
+        if (unitQuad == null)
+        {
+            unitQuad = share(new Quad(1, 1));
+        }
+        return unitQuad;
+    }
+
+    /**
+     * Returns the shared wedge of the given shape (see the Wedge constructor).
+     */
+    public static Mesh getWedge(Wedge.Orientation orientation, Vector3f bounds, boolean extruded)
+    {
+        String key = orientation + " " + bounds + " " + extruded;
+        Mesh result = wedges.get(key);
+        if (result == null)
+        {
+            result = share(new Wedge(orientation, bounds, extruded));
+            wedges.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Sets up an invisible geometry catching the clicks on an element of the
+     * given size: a box (as large as Box(width, height, depth)) if the element
+     * is extruded, else a quad. The shared meshes are scaled to size.
+     *
+     * @param geometry The geometry to set up, or null to create one.
+     * @return the geometry.
+     */
+    public static Geometry setHitGeometry(Geometry geometry, boolean extruded, float width, float height, float depth)
+    {
+        if (geometry == null)
+        {
+            geometry = new Geometry();
+            geometry.setMaterial(Materials.invisibleMaterial);
+        }
+
+        if (extruded)
+        {
+            geometry.setName("invisibleBox");
+            geometry.setMesh(getUnitBox());
+            geometry.setLocalScale(width, height, depth);
+        }
+        else
+        {
+            geometry.setName("invisibleQuad");
+            geometry.setMesh(getUnitQuad());
+            geometry.setLocalScale(width, height, 1);
+        }
+        return geometry;
+    }
+
+    /**
+     * Returns a box from (0,0,0) to (1,1,1), whose vertices have the given
+     * palette color. It is shared: scale and move its geometries instead of
+     * changing it, and use the palette material to render it.
+     */
+    public static Mesh getPaletteBox(int color)
+    {
+        if (paletteBoxes[color] == null)
+        {
+            Box box = new Box(Vector3f.ZERO, Vector3f.UNIT_XYZ);
+            ColorRGBA colors[] = new ColorRGBA[box.getVertexCount()];
+            Arrays.fill(colors, Materials.getPaletteColor(color));
+            box.setBuffer(VertexBuffer.Type.Color, 4, BufferUtils.createFloatBuffer(colors));
+            paletteBoxes[color] = share(box);
+        }
+        return paletteBoxes[color];
+    }
 
     /**
      * Takes a list of vertices as input, ordered to form a triangle list
@@ -61,4 +203,122 @@ public class MeshUtils
         // Return the triangles indices.
         return triangles;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the memory (in bytes) used by the spatials under the given one
+     * (itself included), and by the vertex buffers of their meshes. Meshes
+     * used several times are counted once, and shared meshes (e.g. glyphs)
+     * not at all.
+     */
+    public static long getMemoryUsage(Spatial spatial)
+    {
+        Set<Mesh> meshes = Collections.newSetFromMap(new IdentityHashMap<Mesh, Boolean>());
+        long result = collectMeshes(spatial, meshes) * spatialMemoryUsage;
+
+        for (Mesh mesh : meshes)
+        {
+            for (VertexBuffer buffer : mesh.getBufferList())
+            {
+                if (buffer.getData() != null)
+                {
+                    result += buffer.getData().capacity() * buffer.getFormat().getComponentSize();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Collects the meshes under the spatial, and returns the number of
+     * spatials there.
+     */
+    private static int collectMeshes(Spatial spatial, Set<Mesh> meshes)
+    {
+        int result = 1;
+        if (spatial instanceof Geometry)
+        {
+            Mesh mesh = ((Geometry) spatial).getMesh();
+            if (mesh != null && !isShared(mesh))
+            {
+                meshes.add(mesh);
+            }
+        }
+        else if (spatial instanceof Node)
+        {
+            for (Spatial child : ((Node) spatial).getChildren())
+            {
+                result += collectMeshes(child, meshes);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Merges the given geometries (positions, normals and indices) into the
+     * store mesh. The vertices are expressed in the given space, i.e. the mesh
+     * is meant to be attached to the given world transform matrix.
+     */
+    public static Mesh mergeGeometries(List<Geometry> geometries, Matrix4f spaceWorldMatrix, Mesh store)
+    {
+        // First count the vertices and indices.
+        int vertexCount = 0;
+        int indexCount = 0;
+        for (Geometry geometry : geometries)
+        {
+            vertexCount += geometry.getMesh().getVertexCount();
+            indexCount += geometry.getMesh().getIndexBuffer().size();
+        }
+
+        FloatBuffer positions = BufferUtils.createFloatBuffer(vertexCount * 3);
+        FloatBuffer normals = BufferUtils.createFloatBuffer(vertexCount * 3);
+        IntBuffer indices = BufferUtils.createIntBuffer(indexCount);
+
+        Matrix4f toSpace = spaceWorldMatrix.invert();
+        Vector3f vertex = new Vector3f();
+        int offset = 0;
+        for (Geometry geometry : geometries)
+        {
+            // Express the geometry in the target space. Normals are transformed
+            // by the inverse transpose, in case the scale isn't uniform.
+            Matrix4f transform = toSpace.mult(geometry.getWorldTransform().toTransformMatrix());
+            Matrix3f normalTransform = transform.toRotationMatrix().invertLocal().transposeLocal();
+
+            Mesh mesh = geometry.getMesh();
+            FloatBuffer meshPositions = mesh.getFloatBuffer(VertexBuffer.Type.Position);
+            FloatBuffer meshNormals = mesh.getFloatBuffer(VertexBuffer.Type.Normal);
+            for (int i = 0; i < mesh.getVertexCount(); i++)
+            {
+                vertex.set(meshPositions.get(3 * i), meshPositions.get(3 * i + 1), meshPositions.get(3 * i + 2));
+                transform.mult(vertex, vertex);
+                positions.put(vertex.x).put(vertex.y).put(vertex.z);
+
+                if (meshNormals != null)
+                {
+                    vertex.set(meshNormals.get(3 * i), meshNormals.get(3 * i + 1), meshNormals.get(3 * i + 2));
+                    normalTransform.mult(vertex, vertex).normalizeLocal();
+                }
+                else
+                {
+                    vertex.set(Vector3f.UNIT_Z);
+                }
+                normals.put(vertex.x).put(vertex.y).put(vertex.z);
+            }
+
+            // Shift the indices by the number of vertices already merged.
+            IndexBuffer meshIndices = mesh.getIndexBuffer();
+            for (int i = 0; i < meshIndices.size(); i++)
+            {
+                indices.put(offset + meshIndices.get(i));
+            }
+            offset += mesh.getVertexCount();
+        }
+
+        store.setBuffer(VertexBuffer.Type.Position, 3, positions);
+        store.setBuffer(VertexBuffer.Type.Normal, 3, normals);
+        store.setBuffer(VertexBuffer.Type.Index, 3, indices);
+        store.updateBound();
+        store.updateCounts();
+        store.setStatic();
+        return store;
+    }
+}